@@ -0,0 +1,122 @@
+package frc.robot.subsystems.drive
+
+import edu.wpi.first.math.VecBuilder
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator
+import edu.wpi.first.math.geometry.Pose2d
+import edu.wpi.first.math.geometry.Rotation2d
+import edu.wpi.first.math.geometry.Translation2d
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics
+import edu.wpi.first.math.kinematics.SwerveModulePosition
+import java.lang.management.ManagementFactory
+
+private const val PERIOD = 1.0 / 250.0
+private const val CAMERAS = 3
+private const val SAMPLES_PER_CYCLE = 5
+private const val WARMUP_CYCLES = 10_000
+private const val CYCLES = 2_000
+private const val ROUNDS = 5
+
+private val kinematics =
+    SwerveDriveKinematics(
+        Translation2d(0.3, 0.3),
+        Translation2d(0.3, -0.3),
+        Translation2d(-0.3, 0.3),
+        Translation2d(-0.3, -0.3)
+    )
+private val stdDevs = VecBuilder.fill(0.5, 0.5, 0.3)
+private val measurements =
+    Array(CAMERAS) { Pose2d(1.0 + 0.1 * it, 2.0, Rotation2d.kZero) }
+
+/**
+ * Compares a loop's cycle through WPILib's estimator and SwervePoseEstimator:
+ * the loop's odometry samples, then several cameras' measurements with latency,
+ * newest first. Only reports the results, run with `./gradlew benchmark`.
+ */
+fun main() {
+    val wpilibPositions = Array(4) { SwerveModulePosition() }
+    val wpilib =
+        SwerveDrivePoseEstimator(
+            kinematics,
+            Rotation2d.kZero,
+            wpilibPositions,
+            Pose2d()
+        )
+    report("SwerveDrivePoseEstimator") { cycle ->
+        var timestamp = 0.0
+        for (sample in 1..SAMPLES_PER_CYCLE) {
+            timestamp = (cycle * SAMPLES_PER_CYCLE + sample) * PERIOD
+            wpilibPositions.forEach { it.distanceMeters += 0.01 }
+            wpilib.updateWithTime(
+                timestamp,
+                Rotation2d.fromRadians(0.5 * timestamp),
+                wpilibPositions
+            )
+        }
+        for (camera in 0 until CAMERAS) {
+            wpilib.addVisionMeasurement(
+                measurements[camera],
+                timestamp - 0.02 - 0.01 * camera,
+                stdDevs
+            )
+        }
+    }
+
+    val positions = Array(4) { SwerveModulePosition() }
+    val estimator =
+        SwervePoseEstimator(
+            kinematics,
+            Rotation2d.kZero,
+            positions,
+            Pose2d()
+        )
+    val estimate = DoubleArray(3)
+    report("SwervePoseEstimator") { cycle ->
+        var timestamp = 0.0
+        for (sample in 1..SAMPLES_PER_CYCLE) {
+            timestamp = (cycle * SAMPLES_PER_CYCLE + sample) * PERIOD
+            positions.forEach { it.distanceMeters += 0.01 }
+            estimator.addOdometrySample(timestamp, 0.5 * timestamp, positions)
+            estimator.getEstimatedPosition(estimate)
+        }
+        for (camera in 0 until CAMERAS) {
+            estimator.queueVisionMeasurement(
+                measurements[camera],
+                timestamp - 0.02 - 0.01 * camera,
+                stdDevs
+            )
+        }
+        estimator.applyQueuedVisionMeasurements()
+    }
+}
+
+/**
+ * Prints the allocation of a cycle on average, and its CPU time in the fastest
+ * round. Inlined so the cycle index is not boxed.
+ */
+private inline fun report(name: String, cycle: (Int) -> Unit) {
+    val threadBean =
+        ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    val threadId = Thread.currentThread().id
+    var index = 0
+
+    // Warm up the JIT
+    repeat(WARMUP_CYCLES) { cycle(index++) }
+
+    val allocatedBefore = threadBean.getThreadAllocatedBytes(threadId)
+    var fastestNanos = Long.MAX_VALUE
+    repeat(ROUNDS) {
+        val start = threadBean.currentThreadCpuTime
+        repeat(CYCLES) { cycle(index++) }
+        fastestNanos =
+            minOf(fastestNanos, threadBean.currentThreadCpuTime - start)
+    }
+    val allocatedAfter = threadBean.getThreadAllocatedBytes(threadId)
+
+    val bytesPerCycle =
+        (allocatedAfter - allocatedBefore).toDouble() / (ROUNDS * CYCLES)
+    val nanosPerCycle = fastestNanos.toDouble() / CYCLES
+    println(
+        "%s: %.0f bytes and %.0f ns per cycle"
+            .format(name, bytesPerCycle, nanosPerCycle)
+    )
+}
@@ -9,6 +9,9 @@ import frc.robot.lib.extensions.toTransform
 import frc.robot.lib.getRotation3d
 import frc.robot.lib.getTranslation3d
 import frc.robot.sim.RapidReactArena
+import frc.robot.subsystems.ball_tracker.BallTracker
+import frc.robot.subsystems.ball_tracker.BallTrackerIO
+import frc.robot.subsystems.ball_tracker.BallTrackerIORealsense
 import frc.robot.subsystems.drive.*
 import frc.robot.subsystems.drive.ModuleIOs.ModuleIO
 import frc.robot.subsystems.drive.ModuleIOs.ModuleIOSim
@@ -76,21 +79,27 @@ private val visionIOs =
         Mode.REAL ->
             VisionConstants.OVNameToTransform.map {
                 if (it.key == turretOVName) {
-                    VisionIOPhotonVision(it.key) {
-                        Pose3d(
-                                it.value.translation.rotateAround(
-                                    getTranslation3d(z = 441.837.millimeters),
-                                    getRotation3d(yaw = Turret.inputs.position)
-                                ),
-                                getRotation3d(
-                                    yaw =
-                                        it.value.rotation.measureZ -
-                                            Turret.inputs.position,
-                                    pitch = it.value.rotation.measureY
+                    // Rotate the camera by the turret angle at each frame's
+                    // capture time, not the current one
+                    VisionIOPhotonVision(it.key) { it.value }
+                        .withTimestampedRobotToCamera { timestamp ->
+                            val turretAngle = Turret.getAngleAt(timestamp)
+                            Pose3d(
+                                    it.value.translation.rotateAround(
+                                        getTranslation3d(
+                                            z = 441.837.millimeters
+                                        ),
+                                        getRotation3d(yaw = turretAngle)
+                                    ),
+                                    getRotation3d(
+                                        yaw =
+                                            it.value.rotation.measureZ -
+                                                turretAngle,
+                                        pitch = it.value.rotation.measureY
+                                    )
                                 )
-                            )
-                            .toTransform()
-                    }
+                                .toTransform()
+                        }
                 } else {
                     VisionIOPhotonVision(it.key) { it.value }
                 }
@@ -107,3 +116,11 @@ private val visionIOs =
     }.toTypedArray()
 
 val vision = Vision(drive, *visionIOs)
+
+private val ballTrackerIO =
+    when (CURRENT_MODE) {
+        Mode.REAL -> BallTrackerIORealsense()
+        else -> object : BallTrackerIO {}
+    }
+
+val ballTracker = BallTracker(ballTrackerIO, drive.poseHistory, drive::getPose)
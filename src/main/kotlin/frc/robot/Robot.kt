@@ -13,6 +13,8 @@ import edu.wpi.first.wpilibj.PowerDistribution
 import edu.wpi.first.wpilibj2.command.Command
 import edu.wpi.first.wpilibj2.command.CommandScheduler
 import frc.robot.lib.Mode
+import frc.robot.lib.NetworkTablesFlusher
+import frc.robot.lib.StatusSignalRegistry
 import frc.robot.lib.extensions.enableAutoLogOutputFor
 import frc.robot.lib.logged_output.generated.registerAllLoggedOutputs
 import org.ironmaple.simulation.SimulatedArena
@@ -133,7 +135,9 @@ object Robot : LoggedRobot() {
      * LiveWindow and SmartDashboard integrated updating.
      */
     override fun robotPeriodic() {
+        StatusSignalRegistry.refreshAll()
         CommandScheduler.getInstance().run()
+        NetworkTablesFlusher.flushIfRequested()
         logSubsystemPose()
     }
 
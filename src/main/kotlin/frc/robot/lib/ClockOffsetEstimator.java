@@ -0,0 +1,58 @@
+package frc.robot.lib;
+
+/**
+ * Estimates the offset between a remote clock, such as a CAN device or CANivore timestamp, and the
+ * local clock from the times messages were stamped remotely and received locally.
+ *
+ * <p>Every observed offset is the true offset plus a non-negative transport latency, so the
+ * smallest observation is the best estimate. The estimate follows the minimum, and is allowed to
+ * rise by a bounded drift rate so it can follow slow clock drift. Each update is O(1) and does not
+ * allocate.
+ */
+public final class ClockOffsetEstimator {
+    private final double maxDriftPerSecond;
+
+    private double offset = Double.NaN;
+    private double lastRemoteTime = Double.NaN;
+
+    /**
+     * Creates a new estimator.
+     *
+     * @param maxDriftPerSecond How many seconds per second the estimate may rise without a
+     *     smaller observation.
+     */
+    public ClockOffsetEstimator(double maxDriftPerSecond) {
+        this.maxDriftPerSecond = maxDriftPerSecond;
+    }
+
+    /**
+     * Adds an observation and converts the remote time to the local clock.
+     *
+     * @param remoteTime The time the message was stamped by the remote clock, in seconds.
+     * @param localReceiveTime The local time the message was received, in seconds.
+     * @return The remote time in the local clock.
+     */
+    public double update(double remoteTime, double localReceiveTime) {
+        double observedOffset = localReceiveTime - remoteTime;
+        if (Double.isNaN(offset) || remoteTime < lastRemoteTime) {
+            // First observation, or the remote clock restarted
+            offset = observedOffset;
+        } else {
+            double drift = maxDriftPerSecond * (remoteTime - lastRemoteTime);
+            offset = Math.min(observedOffset, offset + drift);
+        }
+        lastRemoteTime = remoteTime;
+        return remoteTime + offset;
+    }
+
+    /** Returns the current offset estimate in seconds, or NaN before the first observation. */
+    public double getOffset() {
+        return offset;
+    }
+
+    /** Forgets the estimate, for example after the remote time source changed. */
+    public void reset() {
+        offset = Double.NaN;
+        lastRemoteTime = Double.NaN;
+    }
+}
@@ -0,0 +1,143 @@
+package frc.robot.lib;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A lock-free, fixed-capacity ring buffer of primitive doubles for exactly one producer thread and
+ * one consumer thread.
+ *
+ * <p>Samples are never boxed, and {@link #drain(DoubleUnaryOperator)} returns arrays from an
+ * internal pool indexed by sample count, so neither side allocates once the pool is warm. Each
+ * count keeps two arrays which are handed out alternately, so the array returned in the previous
+ * cycle is still intact while asynchronous log receivers encode it.
+ */
+public final class DoubleRingBuffer {
+    private static final int DRAIN_ARRAYS_PER_LENGTH = 2;
+
+    private final double[] buffer;
+    private final int mask;
+
+    // Index of the next slot the producer writes. Only written by the producer.
+    private final AtomicLong head = new AtomicLong();
+    // Index of the next slot the consumer reads. Only written by the consumer.
+    private final AtomicLong tail = new AtomicLong();
+
+    // Last value offered, only accessed by the producer
+    private double lastOffered = Double.NaN;
+
+    private final double[][][] drainArrays;
+    private final int[] drainArrayIndices;
+
+    /**
+     * Creates a new ring buffer.
+     *
+     * @param capacity The maximum number of samples held, rounded up to a power of two.
+     */
+    public DoubleRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        int roundedCapacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        buffer = new double[roundedCapacity];
+        mask = roundedCapacity - 1;
+        drainArrays = new double[roundedCapacity + 1][DRAIN_ARRAYS_PER_LENGTH][];
+        drainArrayIndices = new int[roundedCapacity + 1];
+    }
+
+    /** Returns the maximum number of samples the buffer can hold. */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Adds a sample. Must only be called from the producer thread.
+     *
+     * @return Whether the sample was added, false if the buffer is full.
+     */
+    public boolean offer(double value) {
+        long currentHead = head.get();
+        if (currentHead - tail.get() >= buffer.length) return false;
+        buffer[(int) currentHead & mask] = value;
+        lastOffered = value;
+        // Release store, publishes the sample before the new head becomes visible
+        head.lazySet(currentHead + 1);
+        return true;
+    }
+
+    /**
+     * Returns the last sample added, or NaN if none was added yet. Must only be called from the
+     * producer thread.
+     */
+    public double getLastOffered() {
+        return lastOffered;
+    }
+
+    /** Returns the number of samples currently available to the consumer. */
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    /** Returns the total number of samples the consumer has taken since creation. */
+    public long getReadCount() {
+        return tail.get();
+    }
+
+    /** Discards every available sample. Must only be called from the consumer thread. */
+    public void clear() {
+        tail.lazySet(head.get());
+    }
+
+    /**
+     * Moves up to {@code destination.length} samples into the given array. Must only be called
+     * from the consumer thread.
+     *
+     * @return The number of samples written.
+     */
+    public int drainTo(double[] destination) {
+        return drainTo(destination, Math.min(size(), destination.length), null);
+    }
+
+    /**
+     * Moves every available sample into a pooled array sized exactly to the sample count. Must
+     * only be called from the consumer thread.
+     *
+     * @param transform Conversion applied to each sample, or null to copy the raw values. Pass a
+     *     non-capturing lambda or method reference so no allocation happens per call.
+     */
+    public double[] drain(DoubleUnaryOperator transform) {
+        return drain(size(), transform);
+    }
+
+    /**
+     * Moves exactly {@code count} samples into a pooled array. Useful when several buffers are
+     * filled together and must be drained to the same length. Must only be called from the
+     * consumer thread.
+     *
+     * @param count The number of samples to take, clamped to the available samples.
+     * @param transform Conversion applied to each sample, or null to copy the raw values.
+     */
+    public double[] drain(int count, DoubleUnaryOperator transform) {
+        int length = Math.max(0, Math.min(count, size()));
+        int slot = drainArrayIndices[length];
+        drainArrayIndices[length] = (slot + 1) % DRAIN_ARRAYS_PER_LENGTH;
+        double[] destination = drainArrays[length][slot];
+        if (destination == null) {
+            destination = new double[length];
+            drainArrays[length][slot] = destination;
+        }
+        drainTo(destination, length, transform);
+        return destination;
+    }
+
+    private int drainTo(double[] destination, int count, DoubleUnaryOperator transform) {
+        long currentTail = tail.get();
+        for (int i = 0; i < count; i++) {
+            double value = buffer[(int) (currentTail + i) & mask];
+            destination[i] = transform == null ? value : transform.applyAsDouble(value);
+        }
+        // Release store, the slots may only be reused after they were read
+        tail.lazySet(currentTail + count);
+        return count;
+    }
+}
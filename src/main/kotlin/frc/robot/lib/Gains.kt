@@ -101,6 +101,36 @@ class LoggedNetworkGains(
         }
     }
 
+    private val tunedNumbers =
+        arrayOf(this.kP, this.kI, this.kD, this.kS, this.kV, this.kA, this.kG) +
+            listOfNotNull(this.jerk, this.cruiseVelocity, this.acceleration)
+    private val lastTunedValues = DoubleArray(tunedNumbers.size) { Double.NaN }
+
+    /**
+     * Incremented by [pollVersion] whenever any tuned value changed. Consumers
+     * remember the last version they applied and only push new configs when it
+     * differs, instead of reapplying the gains every loop.
+     */
+    var version = 0
+        private set
+
+    /**
+     * Checks the tuned values for changes, incrementing [version] if any
+     * changed. Call once per loop, before the consumers read [version].
+     */
+    fun pollVersion(): Int {
+        var changed = false
+        for (i in tunedNumbers.indices) {
+            val value = tunedNumbers[i].get()
+            if (value != lastTunedValues[i]) {
+                lastTunedValues[i] = value
+                changed = true
+            }
+        }
+        if (changed) version++
+        return version
+    }
+
     fun toSlotConfig() =
         Slot0Configs().apply {
             kP = this@LoggedNetworkGains.kP.get()
@@ -0,0 +1,29 @@
+package frc.robot.lib;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces requests to flush NetworkTables immediately, such as Limelight orientation updates for
+ * MegaTag 2, into at most one flush per robot loop.
+ *
+ * <p>Publishers call {@link #requestFlush()}, which is safe from any thread. The flush happens the
+ * next time {@link #flushIfRequested()} is called from the main loop.
+ */
+public final class NetworkTablesFlusher {
+    private static final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    private NetworkTablesFlusher() {}
+
+    /** Requests a flush before the end of the current loop. */
+    public static void requestFlush() {
+        flushRequested.set(true);
+    }
+
+    /** Flushes NetworkTables if a flush was requested since the last one. */
+    public static void flushIfRequested() {
+        if (flushRequested.getAndSet(false)) {
+            NetworkTableInstance.getDefault().flush();
+        }
+    }
+}
@@ -27,12 +27,23 @@ import edu.wpi.first.units.measure.AngularVelocity;
 import edu.wpi.first.units.measure.Voltage;
 import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.Timer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 import org.ironmaple.simulation.SimulatedArena;
 import org.ironmaple.simulation.motorsims.SimulatedBattery;
 import org.ironmaple.simulation.motorsims.SimulatedMotorController;
 
 public final class PhoenixUtil {
+    // Runs blocking config transactions off the main loop, in submission order
+    private static final ExecutorService configExecutor =
+            Executors.newSingleThreadExecutor(
+                    (runnable) -> {
+                        Thread thread = new Thread(runnable, "PhoenixConfigWorker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
     /** Attempts to run the command until no error is produced. */
     public static void tryUntilOk(int maxAttempts, Supplier<StatusCode> command) {
         for (int i = 0; i < maxAttempts; i++) {
@@ -41,6 +52,14 @@ public final class PhoenixUtil {
         }
     }
 
+    /**
+     * Attempts to run the command until no error is produced on a background worker, so the
+     * caller never blocks on the CAN bus. Commands run one at a time in submission order.
+     */
+    public static void tryUntilOkAsync(int maxAttempts, Supplier<StatusCode> command) {
+        configExecutor.execute(() -> tryUntilOk(maxAttempts, command));
+    }
+
     public static class TalonFXMotorControllerSim implements SimulatedMotorController {
         private static int instances = 0;
         public final int id;
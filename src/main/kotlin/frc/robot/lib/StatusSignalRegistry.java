@@ -0,0 +1,74 @@
+package frc.robot.lib;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import java.util.ArrayList;
+import java.util.List;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Central registry of every Phoenix status signal read by the robot loop.
+ *
+ * <p>IO implementations register their signals once when they are constructed and then only read
+ * the cached values. {@link #refreshAll()} is called once per robot loop before the subsystems run
+ * and refreshes every registered signal with a single {@link BaseStatusSignal#refreshAll} call per
+ * CAN bus, instead of one blocking refresh per getter. For example all four swerve modules and the
+ * gyro share the drivetrain bus, so the whole drivetrain is refreshed by one call.
+ *
+ * <p>The duration and status of each bus refresh are logged under {@code StatusSignals/<bus>}.
+ */
+public final class StatusSignalRegistry {
+    private static final List<Bus> buses = new ArrayList<>();
+
+    private StatusSignalRegistry() {}
+
+    /**
+     * Registers signals to be refreshed every loop.
+     *
+     * @param canBus The name of the CAN bus the signals' devices are on, empty for the RIO bus.
+     * @param signals The signals to refresh.
+     */
+    public static void register(String canBus, BaseStatusSignal... signals) {
+        Bus bus = getBus(canBus);
+        BaseStatusSignal[] newSignals = new BaseStatusSignal[bus.signals.length + signals.length];
+        System.arraycopy(bus.signals, 0, newSignals, 0, bus.signals.length);
+        System.arraycopy(signals, 0, newSignals, bus.signals.length, signals.length);
+        bus.signals = newSignals;
+    }
+
+    /** Refreshes every registered signal, one batched call per CAN bus. */
+    public static void refreshAll() {
+        for (int i = 0; i < buses.size(); i++) {
+            Bus bus = buses.get(i);
+            if (bus.signals.length > 0) {
+                long refreshStart = System.nanoTime();
+                StatusCode status = BaseStatusSignal.refreshAll(bus.signals);
+                Logger.recordOutput(bus.refreshMicrosKey, (System.nanoTime() - refreshStart) / 1e3);
+                Logger.recordOutput(bus.refreshOkKey, status.isOK());
+            }
+        }
+    }
+
+    private static Bus getBus(String canBus) {
+        for (Bus bus : buses) {
+            if (bus.name.equals(canBus)) return bus;
+        }
+        Bus bus = new Bus(canBus);
+        buses.add(bus);
+        return bus;
+    }
+
+    private static final class Bus {
+        private final String name;
+        private final String refreshMicrosKey;
+        private final String refreshOkKey;
+        private BaseStatusSignal[] signals = new BaseStatusSignal[0];
+
+        private Bus(String name) {
+            this.name = name;
+            String logPrefix = "StatusSignals/" + (name.isEmpty() ? "rio" : name) + "/";
+            refreshMicrosKey = logPrefix + "RefreshMicros";
+            refreshOkKey = logPrefix + "RefreshOK";
+        }
+    }
+}
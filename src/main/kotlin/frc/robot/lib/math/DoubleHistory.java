@@ -0,0 +1,77 @@
+package frc.robot.lib.math;
+
+/**
+ * Fixed-capacity history of timestamped values in primitive arrays, sampled with linear
+ * interpolation. Adding and sampling do not allocate, and sampling is O(log n).
+ *
+ * <p>Not thread safe. Readers on other threads must not run concurrently with the writer, for
+ * example by being joined before the writer's next update.
+ */
+public class DoubleHistory {
+    private final double[] timestamps;
+    private final double[] values;
+    private int start = 0;
+    private int size = 0;
+
+    public DoubleHistory(int capacity) {
+        timestamps = new double[capacity];
+        values = new double[capacity];
+    }
+
+    /**
+     * Adds a sample, overwriting the oldest one when full. Samples that are not newer than the
+     * newest sample are ignored.
+     */
+    public void addSample(double timestamp, double value) {
+        if (size > 0 && timestamp <= timestamps[index(size - 1)]) return;
+        if (size == timestamps.length) {
+            start = (start + 1) % timestamps.length;
+            size--;
+        }
+        int index = index(size);
+        timestamps[index] = timestamp;
+        values[index] = value;
+        size++;
+    }
+
+    /** Removes every sample. */
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value at the timestamp, interpolated between the samples around it, or NaN if
+     * the history is empty. Timestamps outside of the history are clamped to its ends.
+     */
+    public double sample(double timestamp) {
+        if (size == 0) return Double.NaN;
+        if (timestamp <= timestamps[start]) return values[start];
+        int newest = index(size - 1);
+        if (timestamp >= timestamps[newest]) return values[newest];
+
+        // Find the first sample after the timestamp
+        int low = 1;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[index(middle)] > timestamp) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        int after = index(low);
+        int before = index(low - 1);
+        double t = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        return values[before] + (values[after] - values[before]) * t;
+    }
+
+    private int index(int logicalIndex) {
+        return (start + logicalIndex) % timestamps.length;
+    }
+}
@@ -0,0 +1,128 @@
+package frc.robot.lib.math;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Allocation-free versions of the {@link edu.wpi.first.math.geometry.Pose2d} operations used by
+ * pose estimation, on poses stored as x, y and heading in radians.
+ *
+ * <p>Each method writes its result into {@code out} at indices {@link #X}, {@link #Y} and {@link
+ * #THETA}, and matches the math of the WPILib method it names. {@code out} may not alias an input
+ * array, but inputs are passed as primitives so results can be written back in place.
+ */
+public final class PoseMath {
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int THETA = 2;
+
+    private PoseMath() {}
+
+    /** Same as {@code start.plus(transform)} with the transform given as x, y and angle. */
+    public static void transformBy(
+            double startX,
+            double startY,
+            double startTheta,
+            double transformX,
+            double transformY,
+            double transformTheta,
+            double[] out) {
+        double cos = Math.cos(startTheta);
+        double sin = Math.sin(startTheta);
+        out[X] = startX + transformX * cos - transformY * sin;
+        out[Y] = startY + transformX * sin + transformY * cos;
+        out[THETA] = MathUtil.angleModulus(startTheta + transformTheta);
+    }
+
+    /** Same as {@code pose.relativeTo(origin)}, written as x, y and angle of the transform. */
+    public static void relativeTo(
+            double poseX,
+            double poseY,
+            double poseTheta,
+            double originX,
+            double originY,
+            double originTheta,
+            double[] out) {
+        double cos = Math.cos(originTheta);
+        double sin = Math.sin(originTheta);
+        double dx = poseX - originX;
+        double dy = poseY - originY;
+        out[X] = dx * cos + dy * sin;
+        out[Y] = -dx * sin + dy * cos;
+        out[THETA] = MathUtil.angleModulus(poseTheta - originTheta);
+    }
+
+    /** Same as {@code start.exp(twist)}. */
+    public static void exp(
+            double startX,
+            double startY,
+            double startTheta,
+            double dx,
+            double dy,
+            double dtheta,
+            double[] out) {
+        double sinTheta = Math.sin(dtheta);
+        double cosTheta = Math.cos(dtheta);
+        double s;
+        double c;
+        if (Math.abs(dtheta) < 1e-9) {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = 0.5 * dtheta;
+        } else {
+            s = sinTheta / dtheta;
+            c = (1 - cosTheta) / dtheta;
+        }
+        transformBy(startX, startY, startTheta, dx * s - dy * c, dx * c + dy * s, dtheta, out);
+    }
+
+    /** Same as {@code start.log(end)}, written as dx, dy and dtheta of the twist. */
+    public static void log(
+            double startX,
+            double startY,
+            double startTheta,
+            double endX,
+            double endY,
+            double endTheta,
+            double[] out) {
+        relativeTo(endX, endY, endTheta, startX, startY, startTheta, out);
+        double transformX = out[X];
+        double transformY = out[Y];
+        double dtheta = out[THETA];
+        double halfDtheta = dtheta / 2.0;
+        double cosMinusOne = Math.cos(dtheta) - 1;
+
+        double halfThetaByTanOfHalfDtheta;
+        if (Math.abs(cosMinusOne) < 1e-9) {
+            halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+        }
+
+        out[X] = transformX * halfThetaByTanOfHalfDtheta + transformY * halfDtheta;
+        out[Y] = -transformX * halfDtheta + transformY * halfThetaByTanOfHalfDtheta;
+        out[THETA] = dtheta;
+    }
+
+    /** Same as {@code start.interpolate(end, t)}, which follows the twist between the poses. */
+    public static void interpolate(
+            double startX,
+            double startY,
+            double startTheta,
+            double endX,
+            double endY,
+            double endTheta,
+            double t,
+            double[] out) {
+        if (t <= 0) {
+            out[X] = startX;
+            out[Y] = startY;
+            out[THETA] = startTheta;
+        } else if (t >= 1) {
+            out[X] = endX;
+            out[Y] = endY;
+            out[THETA] = endTheta;
+        } else {
+            log(startX, startY, startTheta, endX, endY, endTheta, out);
+            exp(startX, startY, startTheta, out[X] * t, out[Y] * t, out[THETA] * t, out);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package frc.robot.lib.unified_canrange
 
 import com.ctre.phoenix6.configs.CANrangeConfiguration
 import com.ctre.phoenix6.hardware.CANrange
+import frc.robot.lib.StatusSignalRegistry
 
 class CANRangeIOReal(
     private val port: Int,
@@ -12,13 +13,23 @@ class CANRangeIOReal(
 
     private val CANrange = CANrange(port, canbus)
 
+    private val distance = CANrange.distance
+    private val isDetected = CANrange.isDetected
+    private val signalStrength = CANrange.signalStrength
+
     init {
         CANrange.configurator.apply(configuration)
+        StatusSignalRegistry.register(
+            canbus,
+            distance,
+            isDetected,
+            signalStrength
+        )
     }
 
     override fun updateInputs() {
-        inputs.distance = CANrange.distance.value
-        inputs.isDetecting = CANrange.isDetected.value
-        inputs.signalStrength = CANrange.signalStrength.value
+        inputs.distance = distance.value
+        inputs.isDetecting = isDetected.value
+        inputs.signalStrength = signalStrength.value
     }
 }
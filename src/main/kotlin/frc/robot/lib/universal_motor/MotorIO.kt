@@ -52,6 +52,9 @@ interface MotorIO {
         /** Current position of the motor shaft. */
         var position: Angle = 0.deg
 
+        /** Time the position was measured, in seconds in the FPGA timebase. */
+        var positionTimestamp: Double = 0.0
+
         /**
          * Linear distance the motor has moved, accounting for gear ratio and
          * wheel diameter. If not a linear system will not change
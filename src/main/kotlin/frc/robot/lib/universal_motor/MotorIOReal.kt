@@ -5,6 +5,8 @@ import com.ctre.phoenix6.controls.ControlRequest
 import com.ctre.phoenix6.hardware.TalonFX
 import edu.wpi.first.units.measure.Angle
 import edu.wpi.first.units.measure.Distance
+import edu.wpi.first.wpilibj.Timer
+import frc.robot.lib.StatusSignalRegistry
 import frc.robot.lib.extensions.toDistance
 
 /**
@@ -16,6 +18,8 @@ import frc.robot.lib.extensions.toDistance
  * @param config The TalonFX configuration to apply on startup.
  * @param gearRatio The gear ratio between motor rotations and mechanism output.
  * @param diameter The diameter of the wheel/spool if used in a linear system.
+ * @param signalFrequencies Update frequencies of the cached status signals.
+ * @param optimizeBusUtilization Whether to disable every unused status signal.
  */
 class MotorIOReal(
     private val port: Int,
@@ -24,12 +28,34 @@ class MotorIOReal(
     private val gearRatio: Double,
     private val diameter: Distance,
     private val absoluteEncoderOffset: Angle,
+    signalFrequencies: StatusSignalFrequencies,
+    optimizeBusUtilization: Boolean,
 ) : MotorIO {
     override val inputs = LoggedMotorInputs()
     private val motor = TalonFX(port, canBus)
 
+    private val supplyCurrent = motor.supplyCurrent
+    private val position = motor.position
+    private val motorVoltage = motor.motorVoltage
+    private val velocity = motor.velocity
+
     init {
         motor.configurator.apply(config)
+
+        supplyCurrent.setUpdateFrequency(signalFrequencies.current)
+        position.setUpdateFrequency(signalFrequencies.position)
+        motorVoltage.setUpdateFrequency(signalFrequencies.voltage)
+        velocity.setUpdateFrequency(signalFrequencies.velocity)
+        if (optimizeBusUtilization) motor.optimizeBusUtilization()
+
+        // Refreshed once per loop together with the rest of the bus
+        StatusSignalRegistry.register(
+            canBus,
+            supplyCurrent,
+            position,
+            motorVoltage,
+            velocity
+        )
     }
 
     override fun setRequest(controlRequest: ControlRequest) {
@@ -45,12 +71,15 @@ class MotorIOReal(
     }
 
     override fun updateInputs() {
-        inputs.current = motor.supplyCurrent.value
-        inputs.position = motor.position.value
-        inputs.voltage = motor.motorVoltage.value
-        inputs.velocity = motor.velocity.value
-        inputs.distance = motor.position.value.toDistance(diameter, gearRatio)
+        val currentPosition = position.value
+        inputs.current = supplyCurrent.value
+        inputs.position = currentPosition
+        inputs.positionTimestamp =
+            Timer.getFPGATimestamp() - position.timestamp.latency
+        inputs.voltage = motorVoltage.value
+        inputs.velocity = velocity.value
+        inputs.distance = currentPosition.toDistance(diameter, gearRatio)
         inputs.absoluteEncoderPositionNoOffset =
-            motor.position.value - absoluteEncoderOffset
+            currentPosition - absoluteEncoderOffset
     }
 }
@@ -61,6 +61,7 @@ class MotorIOSim(
         motor.update(Timer.getTimestamp())
         inputs.current = motor.appliedCurrent
         inputs.position = motor.position.rot
+        inputs.positionTimestamp = Timer.getTimestamp()
         inputs.voltage = motor.appliedVoltage
         inputs.velocity = motor.velocity
         inputs.distance =
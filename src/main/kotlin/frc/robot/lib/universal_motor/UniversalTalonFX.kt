@@ -12,6 +12,18 @@ import frc.robot.lib.extensions.deg
 import frc.robot.lib.extensions.kg2m
 import frc.robot.lib.extensions.m
 
+/**
+ * Update frequencies for the status signals read by [MotorIOReal], in Hz. A
+ * frequency of 0 disables the signal, which only makes sense together with
+ * bus utilization optimization.
+ */
+data class StatusSignalFrequencies(
+    val position: Double = 50.0,
+    val velocity: Double = 50.0,
+    val voltage: Double = 50.0,
+    val current: Double = 50.0
+)
+
 /**
  * Represents a universal wrapper for a motor, which abstracts the real and
  * simulated implementations.
@@ -27,6 +39,11 @@ import frc.robot.lib.extensions.m
  * ```
  *        Do Not pass this parameter if the motor does not actuate a linear mechanism (e.g., elevator or a linear intake).
  * ```
+ *
+ * @param signalFrequencies Update frequencies of the cached status signals.
+ * @param optimizeBusUtilization Whether to disable every status signal that is
+ * not read by this motor. Leave disabled for motors that lead followers,
+ * since followers rely on the leader's output signals.
  */
 class UniversalTalonFX(
     port: Int,
@@ -36,7 +53,9 @@ class UniversalTalonFX(
     momentOfInertia: MomentOfInertia = 0.003.kg2m,
     gearRatio: Double = 1.0,
     linearSystemWheelDiameter: Distance = 0.m,
-    absoluteEncoderOffset: Angle = 0.deg
+    absoluteEncoderOffset: Angle = 0.deg,
+    signalFrequencies: StatusSignalFrequencies = StatusSignalFrequencies(),
+    optimizeBusUtilization: Boolean = false
 ) {
     private val motorIO: MotorIO =
         if (CURRENT_MODE == Mode.REAL)
@@ -46,7 +65,9 @@ class UniversalTalonFX(
                 config,
                 gearRatio,
                 linearSystemWheelDiameter,
-                absoluteEncoderOffset
+                absoluteEncoderOffset,
+                signalFrequencies,
+                optimizeBusUtilization
             )
         else {
             MotorIOSim(
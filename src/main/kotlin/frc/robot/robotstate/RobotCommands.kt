@@ -1,10 +1,8 @@
 package frc.robot.robotstate
 
 import edu.wpi.first.math.geometry.Pose2d
-import edu.wpi.first.math.geometry.Pose3d
 import edu.wpi.first.math.geometry.Rotation2d
 import edu.wpi.first.math.geometry.Translation2d
-import edu.wpi.first.math.kinematics.ChassisSpeeds
 import edu.wpi.first.units.measure.Angle
 import edu.wpi.first.wpilibj2.command.Command
 import edu.wpi.first.wpilibj2.command.Commands
@@ -22,7 +20,6 @@ import frc.robot.lib.shooting.ShotData
 import frc.robot.lib.shooting.calculateShot
 import frc.robot.lib.shooting.disableCompensation
 import frc.robot.lib.wrapAround
-import frc.robot.robotRelativeBallPoses
 import frc.robot.subsystems.drive.alignToHeading
 import frc.robot.subsystems.drive.alignToPose
 import frc.robot.subsystems.drive.profiledAlignToPose
@@ -42,14 +39,14 @@ var disableAutoAlign = LoggedNetworkBoolean("/Tuning/disableAutoAlign", false)
 var intakeByVision = false // TODO: Change
 val compensatedShot: ShotData
     get() {
-        val robotSpeeds =
-            ChassisSpeeds.fromRobotRelativeSpeeds(
-                drive.chassisSpeeds,
-                drive.rotation
-            )
         val shooterExitVelocity =
             Flywheel.velocity.toLinear(FLYWHEEL_DIAMETER, 1.0)
-        val shot = calculateShot(drive.pose, robotSpeeds, shooterExitVelocity)
+        val shot =
+            calculateShot(
+                robotState.pose,
+                robotState.fieldRelativeSpeeds,
+                shooterExitVelocity
+            )
 
         mapOf(
                 "compensatedShot/compensatedTarget" to
@@ -69,17 +66,17 @@ val compensatedShot: ShotData
 
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 val robotDistanceFromHub
-    get() = drive.pose.distanceFromPoint(HUB_LOCATION)
+    get() = robotState.distanceFromHub
 
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 val angleFromRobotToHub
-    get() = (drive.pose.translation.rotationToPoint(HUB_LOCATION))
+    get() = robotState.angleToHub
 
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 // +180 degrees since the turret's zero angle is exactly opposite of the swerve's zero angle.
 val turretToRobotHubAngle: Rotation2d
     get() =
-        (-angleFromRobotToHub + Rotation2d.k180deg + drive.pose.rotation)
+        (-angleFromRobotToHub + Rotation2d.k180deg + robotState.pose.rotation)
             .convertTo360()
 
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
@@ -107,11 +104,12 @@ val isTurretAligned = Trigger {
 
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 val turretToHub: Pose2d
-    get() = Pose2d(drive.pose.translation, turretAngleToHub.toRotation2d())
+    get() =
+        Pose2d(robotState.pose.translation, turretAngleToHub.toRotation2d())
 
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 val robotToHub: Pose2d
-    get() = Pose2d(drive.pose.translation, angleFromRobotToHub)
+    get() = Pose2d(robotState.pose.translation, angleFromRobotToHub)
 
 @LoggedOutput val hub = getPose2d(HUB_LOCATION)
 
@@ -121,33 +119,28 @@ val robotToHub: Pose2d
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 val swerveCompensationAngle: Rotation2d
     get() =
-        drive.rotation + angleFromRobotToHub - turretAngleToHub.toRotation2d() +
+        robotState.pose.rotation + angleFromRobotToHub -
+            turretAngleToHub.toRotation2d() +
             Rotation2d.k180deg
 
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 val appliedSwerveCompensationAngle: Rotation2d
     get() =
-        if (isTurretInRange.asBoolean) drive.pose.rotation
+        if (isTurretInRange.asBoolean) robotState.pose.rotation
         else swerveCompensationAngle
 
-@LoggedOutput(path = COMMAND_NAME_PREFIX)
-val globalBallPoses
-    get() =
-        robotRelativeBallPoses
-            .map { it + Pose3d(drive.pose).toTransform() }
-            .toTypedArray()
-
 // TODO: MAKE CLEAN
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 val deadZoneAlignmentSetpoint: Translation2d
     get() {
+        val robotTranslation = robotState.pose.translation
         val isInnerRingClosest =
-            INNER_SHOOTING_AREA.getDistance(drive.pose.translation) <
-                OUTER_SHOOTING_AREA.getDistance(drive.pose.translation)
+            INNER_SHOOTING_AREA.getDistance(robotTranslation) <
+                OUTER_SHOOTING_AREA.getDistance(robotTranslation)
         val closestEllipse =
             if (isInnerRingClosest) INNER_SHOOTING_AREA else OUTER_SHOOTING_AREA
         return closestEllipse // Find area for shooting.
-            .nearest(drive.pose.translation)
+            .nearest(robotTranslation)
     }
 
 fun disableAutoAlign() = Commands.runOnce({ disableAutoAlign.set(true) })
@@ -166,7 +159,7 @@ fun alignSwerveToHub(): Command =
     }
 
 fun alignToShootingPoint(
-    pose: Translation2d = drive.pose.translation
+    pose: Translation2d = robotState.pose.translation
 ): Command {
     return drive
         .defer {
@@ -218,8 +211,9 @@ fun stopIntaking() =
 fun alignToBall(toRun: () -> Boolean = { false }): Command =
     drive
         .defer {
-            alignToPose(globalBallPoses.first().toPose2d())
-                .onlyIf(globalBallPoses::isNotEmpty)
+            val ball = ballTracker.nearestReachableBall
+            if (ball == null) Commands.none()
+            else alignToPose(Pose2d(ball, robotState.pose.rotation))
         }
         .until(toRun)
         .named(COMMAND_NAME_PREFIX)
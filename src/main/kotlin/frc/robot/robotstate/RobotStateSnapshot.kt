@@ -0,0 +1,57 @@
+package frc.robot.robotstate
+
+import edu.wpi.first.math.geometry.Pose2d
+import edu.wpi.first.math.geometry.Rotation2d
+import edu.wpi.first.math.kinematics.ChassisSpeeds
+import edu.wpi.first.math.kinematics.SwerveModuleState
+import edu.wpi.first.units.measure.Distance
+import frc.robot.drive
+import frc.robot.lib.extensions.distanceFromPoint
+import frc.robot.lib.extensions.rotationToPoint
+
+/**
+ * Drive state derived once per loop, after
+ * [frc.robot.subsystems.drive.Drive.periodic] updated the odometry. Triggers
+ * and commands read it instead of recomputing the same kinematics and hub
+ * geometry many times per loop.
+ */
+class RobotStateSnapshot(
+    val pose: Pose2d,
+    val robotRelativeSpeeds: ChassisSpeeds,
+    val fieldRelativeSpeeds: ChassisSpeeds,
+    val moduleStates: Array<SwerveModuleState>,
+    val distanceFromHub: Distance,
+    val angleToHub: Rotation2d,
+)
+
+private var snapshotPeriodicCount = -1L
+private var snapshot: RobotStateSnapshot? = null
+
+/**
+ * The snapshot of the current loop, recomputed on first access after each
+ * drive periodic.
+ */
+val robotState: RobotStateSnapshot
+    get() {
+        val current = snapshot
+        if (current != null && snapshotPeriodicCount == drive.periodicCount) {
+            return current
+        }
+        val pose = drive.pose
+        val robotRelativeSpeeds = drive.chassisSpeeds
+        return RobotStateSnapshot(
+                pose,
+                robotRelativeSpeeds,
+                ChassisSpeeds.fromRobotRelativeSpeeds(
+                    robotRelativeSpeeds,
+                    pose.rotation
+                ),
+                drive.moduleStates,
+                pose.distanceFromPoint(HUB_LOCATION),
+                pose.translation.rotationToPoint(HUB_LOCATION)
+            )
+            .also {
+                snapshot = it
+                snapshotPeriodicCount = drive.periodicCount
+            }
+    }
@@ -7,12 +7,12 @@ import edu.wpi.first.wpilibj2.command.button.Trigger
 import frc.robot.RobotContainer.forceShoot
 import frc.robot.RobotContainer.shouldShootOneBall
 import frc.robot.applyLeds
+import frc.robot.ballTracker
 import frc.robot.drive
 import frc.robot.lib.extensions.and
 import frc.robot.lib.extensions.onTrue
 import frc.robot.lib.extensions.whileTrue
 import frc.robot.lib.shooting.disableCompensation
-import frc.robot.robotRelativeBallPoses
 import frc.robot.subsystems.roller.Roller
 import frc.robot.subsystems.shooter.flywheel.Flywheel
 import frc.robot.subsystems.shooter.flywheel.STATIC_SHOOT_VELOCITY
@@ -23,7 +23,7 @@ import org.team5987.annotation.LoggedOutput
 
 @LoggedOutput(path = COMMAND_NAME_PREFIX)
 val isInDeadZone = Trigger {
-    val driveTranslation = drive.pose.translation
+    val driveTranslation = robotState.pose.translation
     !OUTER_SHOOTING_AREA.contains(driveTranslation) ||
         INNER_SHOOTING_AREA.contains(driveTranslation)
 }
@@ -44,7 +44,7 @@ val shouldShootOnMove = Trigger { !disableCompensation.get() }
 
 private val isIntakeManual = Trigger { !intakeByVision }
 private val isIntakeAuto = Trigger {
-    intakeByVision && robotRelativeBallPoses.isNotEmpty()
+    intakeByVision && ballTracker.hasReachableBall()
 }
 
 fun bindRobotCommands() {
@@ -72,7 +72,7 @@ fun bindRobotCommands() {
             .onTrue(Roller.stop(), Hopper.stop(), setShooting())
         and(hasBackBall, hasFrontBall.negate()).apply {
             onTrue(Hopper.slowBack(), Roller.intake())
-            and(robotRelativeBallPoses::isNotEmpty, { intakeByVision }).apply {
+            and(ballTracker::hasReachableBall, { intakeByVision }).apply {
                 and(forceShoot.negate())
                     .onTrue(alignToBall(disableAutoAlign::get))
             }
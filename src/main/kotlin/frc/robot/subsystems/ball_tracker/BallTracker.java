@@ -0,0 +1,164 @@
+package frc.robot.subsystems.ball_tracker;
+
+import static frc.robot.subsystems.vision.VisionConstants.aprilTagLayout;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Alert;
+import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.ConstantsKt;
+import frc.robot.lib.Mode;
+import frc.robot.subsystems.drive.PoseHistory;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Tracks the balls seen by the Realsense coprocessor on the field.
+ *
+ * <p>Each frame is transformed to the field with the robot pose at its capture time, from the
+ * odometry pose history, so detections from a turning robot do not smear. The nearest reachable
+ * ball is chosen once per loop and only replaced by a clearly nearer one, so alignment does not
+ * jump between two balls at a similar distance.
+ */
+public class BallTracker extends SubsystemBase {
+    // Furthest distance from the robot at which a ball is worth driving to, in meters
+    private static final double MAX_REACHABLE_DISTANCE = 5.0;
+    // How much nearer another ball must be to replace the current target, in meters
+    private static final double TARGET_SWITCH_MARGIN = 0.5;
+    private static final Translation2d[] NO_BALLS = new Translation2d[0];
+    private static final String LOG_PREFIX = "Subsystems/BallTracker";
+
+    private final BallTrackerIO io;
+    private final BallTrackerIOInputsAutoLogged inputs = new BallTrackerIOInputsAutoLogged();
+    private final PoseHistory poseHistory;
+    private final Supplier<Pose2d> poseSupplier;
+    private final BallTracks tracks = new BallTracks();
+    private final Alert disconnectedAlert =
+            new Alert("Realsense ball detection is disconnected.", AlertType.kWarning);
+
+    private final double[] robotPose = new double[3];
+    private double[] frameXs = new double[8];
+    private double[] frameYs = new double[8];
+    private long[] trackIds = new long[0];
+    private Translation2d[] trackTranslations = new Translation2d[0];
+
+    private BallTracks.Track target = null;
+    private Translation2d nearestReachableBall = null;
+
+    public BallTracker(BallTrackerIO io, PoseHistory poseHistory, Supplier<Pose2d> poseSupplier) {
+        this.io = io;
+        this.poseHistory = poseHistory;
+        this.poseSupplier = poseSupplier;
+    }
+
+    /** Returns the nearest reachable ball as of this loop, or null if there is none. */
+    public Translation2d getNearestReachableBall() {
+        return nearestReachableBall;
+    }
+
+    /** Returns whether there is a reachable ball as of this loop. */
+    public boolean hasReachableBall() {
+        return nearestReachableBall != null;
+    }
+
+    @Override
+    public void periodic() {
+        io.updateInputs(inputs);
+        Logger.processInputs(LOG_PREFIX, inputs);
+        // There is no coprocessor in sim
+        disconnectedAlert.set(!inputs.connected && ConstantsKt.getCURRENT_MODE() != Mode.SIM);
+
+        // Move each frame to the field with the robot pose at its capture time
+        int ball = 0;
+        for (int frame = 0; frame < inputs.frameTimestamps.length; frame++) {
+            double timestamp = inputs.frameTimestamps[frame];
+            int count = inputs.frameBallCounts[frame];
+            if (!poseHistory.sample(timestamp, robotPose)) {
+                ball += count;
+                continue;
+            }
+            if (frameXs.length < count) {
+                frameXs = new double[count];
+                frameYs = new double[count];
+            }
+            double cos = Math.cos(robotPose[PoseHistory.THETA]);
+            double sin = Math.sin(robotPose[PoseHistory.THETA]);
+            for (int i = 0; i < count; i++) {
+                Pose3d robotRelative = inputs.robotRelativeBalls[ball++];
+                frameXs[i] =
+                        robotPose[PoseHistory.X]
+                                + cos * robotRelative.getX()
+                                - sin * robotRelative.getY();
+                frameYs[i] =
+                        robotPose[PoseHistory.Y]
+                                + sin * robotRelative.getX()
+                                + cos * robotRelative.getY();
+            }
+            tracks.addFrame(timestamp, frameXs, frameYs, count);
+        }
+
+        double now = Timer.getTimestamp();
+        tracks.removeStale(now);
+        updateTarget(now);
+        logTracks(now);
+    }
+
+    /** Chooses the nearest reachable ball, keeping the current one unless another is nearer. */
+    private void updateTarget(double timestamp) {
+        Pose2d pose = poseSupplier.get();
+        BallTracks.Track nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        double targetDistance = Double.POSITIVE_INFINITY;
+        for (BallTracks.Track track : tracks.getTracks()) {
+            double x = track.getX(timestamp);
+            double y = track.getY(timestamp);
+            if (!track.isConfirmed()
+                    || x < 0.0
+                    || x > aprilTagLayout.getFieldLength()
+                    || y < 0.0
+                    || y > aprilTagLayout.getFieldWidth()) {
+                continue;
+            }
+            double distance = Math.hypot(x - pose.getX(), y - pose.getY());
+            if (distance > MAX_REACHABLE_DISTANCE) continue;
+            if (track == target) targetDistance = distance;
+            if (distance < nearestDistance) {
+                nearest = track;
+                nearestDistance = distance;
+            }
+        }
+        if (nearest != null && targetDistance <= nearestDistance + TARGET_SWITCH_MARGIN) {
+            nearest = target;
+        }
+
+        target = nearest;
+        nearestReachableBall =
+                target == null
+                        ? null
+                        : new Translation2d(target.getX(timestamp), target.getY(timestamp));
+    }
+
+    private void logTracks(double timestamp) {
+        var trackList = tracks.getTracks();
+        if (trackIds.length != trackList.size()) {
+            trackIds = new long[trackList.size()];
+            trackTranslations = new Translation2d[trackList.size()];
+        }
+        for (int i = 0; i < trackIds.length; i++) {
+            BallTracks.Track track = trackList.get(i);
+            trackIds[i] = track.getId();
+            trackTranslations[i] = new Translation2d(track.getX(timestamp), track.getY(timestamp));
+        }
+        Logger.recordOutput(LOG_PREFIX + "/TrackIds", trackIds);
+        Logger.recordOutput(LOG_PREFIX + "/Tracks", trackTranslations);
+        Logger.recordOutput(LOG_PREFIX + "/TargetId", target == null ? -1 : target.getId());
+        Logger.recordOutput(
+                LOG_PREFIX + "/NearestReachableBall",
+                nearestReachableBall == null
+                        ? NO_BALLS
+                        : new Translation2d[] {nearestReachableBall});
+    }
+}
@@ -0,0 +1,20 @@
+package frc.robot.subsystems.ball_tracker;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import org.littletonrobotics.junction.AutoLog;
+
+public interface BallTrackerIO {
+    /**
+     * Every frame received since the last update. The balls of all frames are concatenated in
+     * {@link #robotRelativeBalls}, with {@link #frameBallCounts} balls per frame.
+     */
+    @AutoLog
+    class BallTrackerIOInputs {
+        public boolean connected = false;
+        public double[] frameTimestamps = new double[0];
+        public int[] frameBallCounts = new int[0];
+        public Pose3d[] robotRelativeBalls = new Pose3d[0];
+    }
+
+    default void updateInputs(BallTrackerIOInputs inputs) {}
+}
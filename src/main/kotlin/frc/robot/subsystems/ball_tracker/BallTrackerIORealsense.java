@@ -0,0 +1,58 @@
+package frc.robot.subsystems.ball_tracker;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StructArraySubscriber;
+import edu.wpi.first.wpilibj.RobotController;
+
+/** IO implementation for the ball detections published by the Realsense coprocessor. */
+public class BallTrackerIORealsense implements BallTrackerIO {
+    private static final String TABLE_KEY = "RealsenseVision";
+    private static final String POSES_KEY = "/" + TABLE_KEY + "/poses";
+    // Time without a new frame after which the coprocessor is disconnected, in milliseconds
+    private static final long DISCONNECT_TIMEOUT_MS = 500;
+
+    private final StructArraySubscriber<Pose3d> posesSubscriber;
+
+    public BallTrackerIORealsense() {
+        var table = NetworkTableInstance.getDefault().getTable(TABLE_KEY);
+        // Keep every frame, including repeated empty ones, which also show the coprocessor is alive
+        posesSubscriber =
+                table.getStructArrayTopic(POSES_KEY, Pose3d.struct)
+                        .subscribe(
+                                new Pose3d[] {},
+                                PubSubOption.keepDuplicates(true),
+                                PubSubOption.sendAll(true));
+    }
+
+    @Override
+    public void updateInputs(BallTrackerIOInputs inputs) {
+        inputs.connected =
+                ((RobotController.getFPGATime() - posesSubscriber.getLastChange()) / 1000)
+                        < DISCONNECT_TIMEOUT_MS;
+
+        var frames = posesSubscriber.readQueue();
+        int ballCount = 0;
+        for (var frame : frames) {
+            ballCount += frame.value.length;
+        }
+        if (inputs.frameTimestamps.length != frames.length) {
+            inputs.frameTimestamps = new double[frames.length];
+            inputs.frameBallCounts = new int[frames.length];
+        }
+        if (inputs.robotRelativeBalls.length != ballCount) {
+            inputs.robotRelativeBalls = new Pose3d[ballCount];
+        }
+
+        int ball = 0;
+        for (int i = 0; i < frames.length; i++) {
+            // Timestamp, based on the server time of publish
+            inputs.frameTimestamps[i] = frames[i].serverTime * 1.0e-6;
+            inputs.frameBallCounts[i] = frames[i].value.length;
+            for (Pose3d pose : frames[i].value) {
+                inputs.robotRelativeBalls[ball++] = pose;
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package frc.robot.subsystems.ball_tracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Associates field relative ball detections across frames into tracks with persistent ids.
+ *
+ * <p>Each frame's detections are matched to the tracks' positions predicted to the frame's
+ * timestamp, closest pair first, within {@link #MAX_ASSOCIATION_DISTANCE}. Unmatched detections
+ * start new tracks. Each track runs an alpha-beta filter, a constant velocity model, so a ball
+ * rolling across the field keeps its id and a single noisy detection only moves it partway.
+ */
+public class BallTracks {
+    // Distance from a track's predicted position within which a detection belongs to it, in meters
+    static final double MAX_ASSOCIATION_DISTANCE = 0.5;
+    // Weights of the position residual on the position and velocity estimates
+    private static final double ALPHA = 0.6;
+    private static final double BETA = 0.2;
+    // Speed limit against velocity spikes from noisy detections, in m/s
+    private static final double MAX_SPEED = 6.0;
+    // Longest extrapolation of a track past its last detection, in seconds
+    private static final double MAX_PREDICTION_TIME = 0.2;
+    // Time without a detection after which a track is removed, in seconds
+    static final double TRACK_TIMEOUT = 0.5;
+    // Detections needed before a track is confirmed as a ball rather than noise
+    static final int CONFIRMATION_HITS = 3;
+
+    /** A ball followed across frames, in field coordinates. */
+    public static final class Track {
+        private final long id;
+        private double x;
+        private double y;
+        private double vx = 0.0;
+        private double vy = 0.0;
+        private double lastTimestamp;
+        private int hits = 1;
+        private boolean matched = false;
+
+        private Track(long id, double timestamp, double x, double y) {
+            this.id = id;
+            this.lastTimestamp = timestamp;
+            this.x = x;
+            this.y = y;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /** Returns the x position predicted to the timestamp, at most a short time ahead. */
+        public double getX(double timestamp) {
+            return x + vx * predictionTime(timestamp);
+        }
+
+        /** Returns the y position predicted to the timestamp, at most a short time ahead. */
+        public double getY(double timestamp) {
+            return y + vy * predictionTime(timestamp);
+        }
+
+        public double getVelocityX() {
+            return vx;
+        }
+
+        public double getVelocityY() {
+            return vy;
+        }
+
+        public double getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        /** Returns whether the track was detected often enough to not be noise. */
+        public boolean isConfirmed() {
+            return hits >= CONFIRMATION_HITS;
+        }
+
+        private double predictionTime(double timestamp) {
+            return Math.max(0.0, Math.min(timestamp - lastTimestamp, MAX_PREDICTION_TIME));
+        }
+
+        private void update(double timestamp, double measuredX, double measuredY) {
+            double dt = timestamp - lastTimestamp;
+            if (dt <= 0.0) {
+                // Same or older frame, only refine the position
+                x += ALPHA * (measuredX - x);
+                y += ALPHA * (measuredY - y);
+                hits++;
+                return;
+            }
+            double residualX = measuredX - (x + vx * dt);
+            double residualY = measuredY - (y + vy * dt);
+            x += vx * dt + ALPHA * residualX;
+            y += vy * dt + ALPHA * residualY;
+            vx += BETA * residualX / dt;
+            vy += BETA * residualY / dt;
+            double speed = Math.hypot(vx, vy);
+            if (speed > MAX_SPEED) {
+                vx *= MAX_SPEED / speed;
+                vy *= MAX_SPEED / speed;
+            }
+            lastTimestamp = timestamp;
+            hits++;
+        }
+    }
+
+    private final List<Track> tracks = new ArrayList<>();
+    private final List<Track> tracksView = Collections.unmodifiableList(tracks);
+    private boolean[] detectionMatched = new boolean[8];
+    private long nextId = 0;
+
+    /**
+     * Adds the detections of one frame. Frames should be added in timestamp order.
+     *
+     * @param timestamp The capture time of the frame.
+     * @param xs The field relative x of each detection.
+     * @param ys The field relative y of each detection.
+     * @param count The number of detections, read from the start of the arrays.
+     */
+    public void addFrame(double timestamp, double[] xs, double[] ys, int count) {
+        if (detectionMatched.length < count) {
+            detectionMatched = new boolean[Math.max(count, detectionMatched.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            detectionMatched[i] = false;
+        }
+        for (Track track : tracks) {
+            track.matched = false;
+        }
+
+        // Match the closest detection and track pair within the gate, until none is left
+        while (true) {
+            Track bestTrack = null;
+            int bestDetection = -1;
+            double bestDistance = MAX_ASSOCIATION_DISTANCE;
+            for (Track track : tracks) {
+                if (track.matched) continue;
+                double predictedX = track.getX(timestamp);
+                double predictedY = track.getY(timestamp);
+                for (int i = 0; i < count; i++) {
+                    if (detectionMatched[i]) continue;
+                    double distance = Math.hypot(xs[i] - predictedX, ys[i] - predictedY);
+                    if (distance < bestDistance) {
+                        bestTrack = track;
+                        bestDetection = i;
+                        bestDistance = distance;
+                    }
+                }
+            }
+            if (bestTrack == null) break;
+
+            bestTrack.update(timestamp, xs[bestDetection], ys[bestDetection]);
+            bestTrack.matched = true;
+            detectionMatched[bestDetection] = true;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (!detectionMatched[i]) tracks.add(new Track(nextId++, timestamp, xs[i], ys[i]));
+        }
+    }
+
+    /** Removes the tracks not detected within {@link #TRACK_TIMEOUT} of the timestamp. */
+    public void removeStale(double timestamp) {
+        for (int i = tracks.size() - 1; i >= 0; i--) {
+            if (timestamp - tracks.get(i).lastTimestamp > TRACK_TIMEOUT) tracks.remove(i);
+        }
+    }
+
+    /** Removes every track, ids are not reused. */
+    public void clear() {
+        tracks.clear();
+    }
+
+    /** Returns the current tracks, in order of creation. */
+    public List<Track> getTracks() {
+        return tracksView;
+    }
+}
@@ -4,7 +4,6 @@ import edu.wpi.first.math.controller.PIDController
 import edu.wpi.first.math.controller.ProfiledPIDController
 import edu.wpi.first.math.geometry.Pose2d
 import edu.wpi.first.math.geometry.Rotation2d
-import edu.wpi.first.math.kinematics.ChassisSpeeds
 import edu.wpi.first.units.Units.MetersPerSecond
 import edu.wpi.first.units.Units.Seconds
 import edu.wpi.first.units.measure.LinearVelocity
@@ -17,6 +16,7 @@ import frc.robot.lib.controllers.TunableHolonomicDriveController
 import frc.robot.lib.extensions.get
 import frc.robot.lib.extensions.mps
 import frc.robot.lib.extensions.sec
+import frc.robot.robotstate.robotState
 import org.littletonrobotics.junction.Logger
 
 private val translationController =
@@ -71,7 +71,7 @@ fun alignToPose(
     goalPose: Pose2d,
     linearVelocity: LinearVelocity = 0.mps,
     tolerance: Pose2d = TOLERANCE,
-    poseSupplier: () -> Pose2d = { drive.pose },
+    poseSupplier: () -> Pose2d = { robotState.pose },
     atGoalDebounce: Time = Seconds.of(0.1),
     holonomicController: Pair<TunableHolonomicDriveController, String> =
         Pair(controller, DEFAULT_CONTROLLER_NAME),
@@ -104,7 +104,7 @@ fun alignToPose(
 fun alignToHeading(
     goalHeading: Rotation2d,
     tolerance: Pose2d = TOLERANCE,
-    poseSupplier: () -> Pose2d = { drive.pose },
+    poseSupplier: () -> Pose2d = { robotState.pose },
     atGoalDebounce: Time = Seconds.of(0.1),
 ): Command =
     drive.defer {
@@ -119,22 +119,22 @@ fun alignToHeading(
 fun profiledAlignToPose(
     goalPose: Pose2d,
     tolerance: Pose2d = TOLERANCE,
-    poseSupplier: () -> Pose2d = { drive.pose },
+    poseSupplier: () -> Pose2d = { robotState.pose },
     atGoalDebounce: Time = 0.1.sec,
     endTrigger: Trigger = atGoal
 ): Command =
     runOnce({
             setTolerance(tolerance)
-            resetProfiledPID(poseSupplier.invoke(), drive.fieldOrientedSpeeds)
+            resetProfiledPID(
+                poseSupplier.invoke(),
+                robotState.fieldRelativeSpeeds
+            )
             setGoal(goalPose)
         })
         .andThen(
             run({
-                    drive.runVelocity(
-                        ChassisSpeeds.fromFieldRelativeSpeeds(
-                            getSpeedSetpoint(poseSupplier.invoke()).invoke(),
-                            drive.rotation
-                        )
+                    drive.runFieldRelativeVelocity(
+                        getSpeedSetpoint(poseSupplier.invoke()).invoke()
                     )
                 })
                 .until(endTrigger.debounce(atGoalDebounce[sec]))
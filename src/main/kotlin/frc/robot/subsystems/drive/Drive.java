@@ -27,8 +27,8 @@ import com.pathplanner.lib.util.PathPlannerLogging;
 import edu.wpi.first.hal.FRCNetComm.tInstances;
 import edu.wpi.first.hal.FRCNetComm.tResourceType;
 import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
@@ -46,6 +46,8 @@ import edu.wpi.first.units.measure.Voltage;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
@@ -60,8 +62,6 @@ import frc.robot.subsystems.drive.gyroIOs.GyroIO;
 import frc.robot.subsystems.drive.gyroIOs.GyroIOInputsAutoLogged;
 import frc.robot.subsystems.vision.Vision;
 import java.time.LocalDate;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import kotlin.Unit;
 import kotlin.jvm.functions.Function1;
@@ -93,6 +93,28 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
                                     TunerConstants.BackRight.LocationX,
                                     TunerConstants.BackRight.LocationY)));
 
+    // Whether the pose is estimated on the odometry thread instead of in periodic, real robot only
+    private static final boolean ESTIMATE_POSE_ON_ODOMETRY_THREAD = false;
+
+    // Whether the odometry rate adapts to the bus utilization at runtime, real robot only
+    private static final boolean USE_ADAPTIVE_ODOMETRY_RATE = false;
+
+    // Whether module setpoints are applied by a fixed-rate Notifier instead of the scheduler loop.
+    // Only used with the pose estimated on the odometry thread, otherwise neither the heading nor
+    // the command change between periodics and the loop would only resend the same setpoints.
+    private static final boolean USE_HIGH_RATE_CONTROL_LOOP = false;
+    private static final double CONTROL_LOOP_PERIOD = 1.0 / 200.0;
+    // Period the setpoints are discretized over when applied from the scheduler loop
+    private static final double SCHEDULER_LOOP_PERIOD = 0.02;
+
+    // Horizontal acceleration above which the robot was hit, after which vision is trusted more
+    private static final double IMPACT_ACCELERATION_THRESHOLD_GS = 1.5;
+    private static final double IMPACT_RECOVERY_SECONDS = 1.0;
+    private static final double IMPACT_VISION_STD_DEV_FACTOR = 0.5;
+
+    // Length of the pose history used for latency compensation
+    private static final double POSE_HISTORY_SECONDS = 2.0;
+
     // PathPlanner config constants
     private static final double ROBOT_MASS_KG = 74.088;
     private static final double ROBOT_MOI = 6.883;
@@ -128,7 +150,6 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
                                     KilogramSquareMeters.of(TunerConstants.FrontLeft.SteerInertia),
                                     WHEEL_COF));
 
-    static final Lock odometryLock = new ReentrantLock();
     private final GyroIO gyroIO;
     public Angle[] SwerveTurnAngle =
             new Angle[] {Radians.zero(), Radians.zero(), Radians.zero(), Radians.zero()};
@@ -183,10 +204,68 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
                     TunerConstants.motionMagicSteerGains.MotionMagicJerk,
                     "Drive");
 
-    private final SwerveDrivePoseEstimator poseEstimator =
-            new SwerveDrivePoseEstimator(
+    private final SwervePoseEstimator poseEstimator =
+            new SwervePoseEstimator(
                     kinematics, rawGyroRotation, lastModulePositions, new Pose2d());
+    private final ThreadedPoseEstimator threadedPoseEstimator; // Null when estimating in periodic
     private final Consumer<Pose2d> resetSimulationPoseCallBack;
+    private final PoseHistory poseHistory =
+            new PoseHistory((int) Math.ceil(ODOMETRY_FREQUENCY * POSE_HISTORY_SECONDS));
+    private final double[] poseHistorySample = new double[3];
+    private final double[] odometryEstimate = new double[3];
+
+    // Pooled odometry replay buffers
+    private final SwerveModulePosition[] odometryModuleDeltas =
+            new SwerveModulePosition[] {
+                new SwerveModulePosition(),
+                new SwerveModulePosition(),
+                new SwerveModulePosition(),
+                new SwerveModulePosition()
+            };
+    // Wheel positions fed to the estimator, integrated from the deltas with slip removed
+    private final SwerveModulePosition[] correctedModulePositions =
+            new SwerveModulePosition[] {
+                new SwerveModulePosition(),
+                new SwerveModulePosition(),
+                new SwerveModulePosition(),
+                new SwerveModulePosition()
+            };
+    private final WheelSlipDetector wheelSlipDetector =
+            new WheelSlipDetector(getModuleTranslations());
+    private double lastOdometryTimestamp = Double.NaN;
+    private double lastImpactTimestamp = Double.NEGATIVE_INFINITY;
+
+    // Measured state, computed once per periodic
+    private long periodicCount = 0;
+    private SwerveModuleState[] measuredModuleStates =
+            new SwerveModuleState[] {
+                new SwerveModuleState(),
+                new SwerveModuleState(),
+                new SwerveModuleState(),
+                new SwerveModuleState()
+            };
+    private ChassisSpeeds measuredChassisSpeeds = new ChassisSpeeds();
+
+    // Null when the odometry rate is fixed
+    private final OdometryRateController odometryRateController;
+
+    // High-rate control loop, null when setpoints are applied directly from runVelocity
+    private final Notifier controlLoop;
+    // Guards the module outputs, kinematics headings and logged setpoints shared with the loop
+    private final Object moduleOutputLock = new Object();
+    private volatile VelocityCommand velocityCommand = null;
+    // Last command and heading applied by the control loop, only accessed by its thread
+    private VelocityCommand appliedCommand = null;
+    private double appliedHeadingRad = Double.NaN;
+
+    // Last applied setpoints, copied into reused instances for logging
+    private static final SwerveModuleState[] NO_STATES = new SwerveModuleState[] {};
+    private boolean hasSetpoints = false;
+    private final ChassisSpeeds loggedSetpointSpeeds = new ChassisSpeeds();
+    private final SwerveModuleState[] loggedSetpointStates = newModuleStates();
+    private final SwerveModuleState[] loggedOptimizedStates = newModuleStates();
+
+    private record VelocityCommand(ChassisSpeeds speeds, boolean fieldRelative) {}
 
     public Drive(
             GyroIO gyroIO, ModuleIO[] moduleIOS, Consumer<Pose2d> resetSimulationPoseCallBack) {
@@ -218,7 +297,35 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
                 tResourceType.kResourceType_RobotDrive, tInstances.kRobotDriveSwerve_AdvantageKit);
 
         // Start odometry thread
+        if (ESTIMATE_POSE_ON_ODOMETRY_THREAD && ConstantsKt.getCURRENT_MODE() == Mode.REAL) {
+            threadedPoseEstimator =
+                    new ThreadedPoseEstimator(
+                            kinematics,
+                            gyroIO,
+                            new ModuleIO[] {flModuleIO, frModuleIO, blModuleIO, brModuleIO},
+                            TunerConstants.FrontLeft.WheelRadius);
+            PhoenixOdometryThread.getInstance().addSampleListener(threadedPoseEstimator);
+        } else {
+            threadedPoseEstimator = null;
+        }
         PhoenixOdometryThread.getInstance().start();
+        if (USE_ADAPTIVE_ODOMETRY_RATE && ConstantsKt.getCURRENT_MODE() == Mode.REAL) {
+            odometryRateController =
+                    new OdometryRateController(
+                            new CANBus(TunerConstants.DrivetrainConstants.CANBusName),
+                            PhoenixOdometryThread.getInstance());
+        } else {
+            odometryRateController = null;
+        }
+
+        // Start the high-rate control loop, only useful with a heading updated between periodics
+        if (USE_HIGH_RATE_CONTROL_LOOP && threadedPoseEstimator != null) {
+            controlLoop = new Notifier(this::runControlLoop);
+            controlLoop.setName("DriveControlLoop");
+            controlLoop.startPeriodic(CONTROL_LOOP_PERIOD);
+        } else {
+            controlLoop = null;
+        }
 
         // Configure AutoBuilder for PathPlanner
         AutoBuilder.configure(
@@ -274,7 +381,8 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
 
     @Override
     public void periodic() {
-        odometryLock.lock(); // Prevents odometry updates while reading data
+        // Snapshot the odometry samples published so far, later samples are read next cycle
+        PhoenixOdometryThread.getInstance().latchSamples();
         SwerveTurnAngle[0] = modules[0].getAngle().getMeasure();
         SwerveTurnAngle[1] = modules[1].getAngle().getMeasure();
         SwerveTurnAngle[2] = modules[2].getAngle().getMeasure();
@@ -287,90 +395,256 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
         gyroIO.updateInputs(gyroInputs);
         Logger.processInputs("Drive/Gyro", gyroInputs);
 
+        // Detect impacts, after which the wheels may have slipped in ways vision must correct
+        boolean isImpact =
+                Math.hypot(gyroInputs.accelerationXGs, gyroInputs.accelerationYGs)
+                        > IMPACT_ACCELERATION_THRESHOLD_GS;
+        if (isImpact) lastImpactTimestamp = Timer.getTimestamp();
+        Logger.recordOutput("Odometry/Impact", isImpact);
+
+        turnGains.pollVersion();
+        driveGains.pollVersion();
         for (var module : modules) {
             module.updateGains(turnGains, driveGains);
             module.periodic();
         }
-        odometryLock.unlock();
+        Logger.recordOutput(
+                "Odometry/Handoff/MaxPublishMicros",
+                PhoenixOdometryThread.getInstance().getAndResetMaxPublishMicros());
+        Logger.recordOutput(
+                "Odometry/Handoff/LatchMicros",
+                PhoenixOdometryThread.getInstance().getLastLatchMicros());
+        PhoenixOdometryThread.getInstance().logStatistics();
+        if (odometryRateController != null) odometryRateController.periodic();
 
         // Stop moving when disabled
         if (DriverStation.isDisabled()) {
-            for (var module : modules) {
-                module.stop();
+            synchronized (moduleOutputLock) {
+                velocityCommand = null;
+                for (var module : modules) {
+                    module.stop();
+                }
             }
         }
 
-        // Log empty setpoint states when disabled
+        // Log empty setpoint states when disabled, the control loop's last setpoints otherwise
         if (DriverStation.isDisabled()) {
-            Logger.recordOutput("SwerveStates/Setpoints", new SwerveModuleState[] {});
-            Logger.recordOutput("SwerveStates/SetpointsOptimized", new SwerveModuleState[] {});
+            Logger.recordOutput("SwerveStates/Setpoints", NO_STATES);
+            Logger.recordOutput("SwerveStates/SetpointsOptimized", NO_STATES);
+        } else if (controlLoop != null) {
+            logSetpoints();
+        }
+
+        // The odometry thread already estimated the pose, only record it
+        if (threadedPoseEstimator != null) {
+            ThreadedPoseEstimator.Snapshot snapshot = threadedPoseEstimator.getSnapshot();
+            poseHistory.addSample(snapshot.timestamp(), snapshot.pose());
         }
 
         // Update odometry
-        double[] sampleTimestamps =
-                modules[0].getOdometryTimestamps(); // All signals are sampled together
-        int sampleCount = sampleTimestamps.length;
+        int sampleCount = // All signals are sampled together
+                threadedPoseEstimator == null ? modules[0].getOdometrySampleCount() : 0;
         for (int i = 0; i < sampleCount; i++) {
-            // Read wheel positions and deltas from each module
-            SwerveModulePosition[] modulePositions = new SwerveModulePosition[4];
-            SwerveModulePosition[] moduleDeltas = new SwerveModulePosition[4];
+            // Read wheel deltas from each module, into the pooled instances
             for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
-                modulePositions[moduleIndex] = modules[moduleIndex].getOdometryPositions()[i];
-                moduleDeltas[moduleIndex] =
-                        new SwerveModulePosition(
-                                modulePositions[moduleIndex].distanceMeters
-                                        - lastModulePositions[moduleIndex].distanceMeters,
-                                modulePositions[moduleIndex].angle);
-                lastModulePositions[moduleIndex] = modulePositions[moduleIndex];
+                SwerveModulePosition position = modules[moduleIndex].getOdometryPosition(i);
+                SwerveModulePosition last = lastModulePositions[moduleIndex];
+                odometryModuleDeltas[moduleIndex].distanceMeters =
+                        position.distanceMeters - last.distanceMeters;
+                odometryModuleDeltas[moduleIndex].angle = position.angle;
+                last.distanceMeters = position.distanceMeters;
+                last.angle = position.angle;
             }
 
             // Update gyro angle
+            double sampleTimestamp = getOdometrySampleTimestamp(i);
             if (gyroInputs.connected) {
-                // Use the real gyro angle
-                rawGyroRotation = gyroInputs.odometryYawPositions[i];
+                // Use the real gyro angle, reusing the last rotation while not turning
+                double yawRad = gyroInputs.odometryYawPositionsRad[i];
+                double dt =
+                        Double.isNaN(lastOdometryTimestamp)
+                                ? 1.0 / ODOMETRY_FREQUENCY
+                                : sampleTimestamp - lastOdometryTimestamp;
+                wheelSlipDetector.update(
+                        odometryModuleDeltas,
+                        MathUtil.angleModulus(yawRad - rawGyroRotation.getRadians()),
+                        dt);
+                if (rawGyroRotation.getRadians() != yawRad) {
+                    rawGyroRotation = Rotation2d.fromRadians(yawRad);
+                }
             } else {
                 // Use the angle delta from the kinematics and module deltas
-                Twist2d twist = kinematics.toTwist2d(moduleDeltas);
+                Twist2d twist = kinematics.toTwist2d(odometryModuleDeltas);
                 rawGyroRotation = rawGyroRotation.plus(new Rotation2d(twist.dtheta));
             }
 
-            // Apply update
-            poseEstimator.updateWithTime(sampleTimestamps[i], rawGyroRotation, modulePositions);
+            // Apply update, with the deltas of slipping wheels replaced
+            for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
+                SwerveModulePosition delta = odometryModuleDeltas[moduleIndex];
+                correctedModulePositions[moduleIndex].distanceMeters += delta.distanceMeters;
+                correctedModulePositions[moduleIndex].angle = delta.angle;
+            }
+            lastOdometryTimestamp = sampleTimestamp;
+            poseEstimator.addOdometrySample(
+                    sampleTimestamp, rawGyroRotation.getRadians(), correctedModulePositions);
+            poseEstimator.getEstimatedPosition(odometryEstimate);
+            poseHistory.addSample(
+                    sampleTimestamp,
+                    odometryEstimate[PoseHistory.X],
+                    odometryEstimate[PoseHistory.Y],
+                    odometryEstimate[PoseHistory.THETA]);
         }
+        Logger.recordOutput("Odometry/WheelSlipCount", wheelSlipDetector.getSlipCount());
 
         // Update gyro alert
         gyroDisconnectedAlert.set(
                 !gyroInputs.connected && ConstantsKt.getCURRENT_MODE() != Mode.SIM);
+
+        // Compute the measured state once for every reader this cycle
+        SwerveModuleState[] states = new SwerveModuleState[4];
+        for (int i = 0; i < 4; i++) {
+            states[i] = modules[i].getState();
+        }
+        measuredModuleStates = states;
+        measuredChassisSpeeds = kinematics.toChassisSpeeds(states);
+        periodicCount++;
+    }
+
+    /**
+     * Returns the mean timestamp of an odometry sample across the modules and the gyro. They only
+     * differ when the odometry thread uses hardware timestamps.
+     */
+    private double getOdometrySampleTimestamp(int sampleIndex) {
+        double totalTimestamp = 0.0;
+        int count = 0;
+        for (var module : modules) {
+            totalTimestamp += module.getOdometryTimestamps()[sampleIndex];
+            count++;
+        }
+        if (gyroInputs.connected && gyroInputs.odometryYawTimestamps.length > sampleIndex) {
+            totalTimestamp += gyroInputs.odometryYawTimestamps[sampleIndex];
+            count++;
+        }
+        return totalTimestamp / count;
+    }
+
+    /** Returns how many times periodic ran, to detect when the measured state was updated. */
+    public long getPeriodicCount() {
+        return periodicCount;
     }
 
     /**
-     * Runs the drive at the desired velocity.
+     * Runs the drive at the desired velocity. With the high-rate control loop the speeds are
+     * applied by the loop until the next command.
      *
-     * @param speeds Speeds in meters/sec
+     * @param speeds Robot relative speeds in meters/sec
      */
     public void runVelocity(ChassisSpeeds speeds) {
+        if (controlLoop != null) {
+            velocityCommand = new VelocityCommand(speeds, false);
+            return;
+        }
+        applyVelocity(speeds, SCHEDULER_LOOP_PERIOD);
+        logSetpoints();
+    }
+
+    /**
+     * Runs the drive at the desired field relative velocity. With the high-rate control loop the
+     * speeds are converted with the odometry thread's latest heading whenever it changes.
+     *
+     * @param speeds Field relative speeds in meters/sec
+     */
+    public void runFieldRelativeVelocity(ChassisSpeeds speeds) {
+        if (controlLoop != null) {
+            velocityCommand = new VelocityCommand(speeds, true);
+            return;
+        }
+        applyVelocity(
+                ChassisSpeeds.fromFieldRelativeSpeeds(speeds, getRotation()),
+                SCHEDULER_LOOP_PERIOD);
+        logSetpoints();
+    }
+
+    /**
+     * Applies the latest velocity command with the odometry thread's latest heading, runs on the
+     * high-rate control loop's thread. Skipped while neither changed since the last iteration.
+     */
+    private void runControlLoop() {
+        VelocityCommand command = velocityCommand;
+        if (command == null || DriverStation.isDisabled()) return;
+        Rotation2d heading = threadedPoseEstimator.getSnapshot().pose().getRotation();
+        if (command == appliedCommand
+                && (!command.fieldRelative() || heading.getRadians() == appliedHeadingRad)) {
+            return;
+        }
+        ChassisSpeeds speeds =
+                command.fieldRelative()
+                        ? ChassisSpeeds.fromFieldRelativeSpeeds(command.speeds(), heading)
+                        : command.speeds();
+        synchronized (moduleOutputLock) {
+            // Checked again, a characterization or stop may have cleared it in the meantime
+            if (velocityCommand != command) return;
+            applyVelocity(speeds, CONTROL_LOOP_PERIOD);
+        }
+        appliedCommand = command;
+        appliedHeadingRad = heading.getRadians();
+    }
+
+    /**
+     * Calculates and sends the module setpoints. The modules read their latest inputs, which the
+     * main loop replaces by reference each cycle.
+     */
+    private void applyVelocity(ChassisSpeeds speeds, double dtSeconds) {
         // Calculate module setpoints
-        speeds = ChassisSpeeds.discretize(speeds, 0.02);
+        speeds = ChassisSpeeds.discretize(speeds, dtSeconds);
         SwerveModuleState[] setpointStates = kinematics.toSwerveModuleStates(speeds);
         SwerveDriveKinematics.desaturateWheelSpeeds(setpointStates, TunerConstants.kSpeedAt12Volts);
 
-        // Log unoptimized setpoints and setpoint speeds
-        Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
-        Logger.recordOutput("SwerveChassisSpeeds/Setpoints", speeds);
+        synchronized (moduleOutputLock) {
+            for (int i = 0; i < 4; i++) {
+                // Keep the unoptimized setpoint for logging, runSetpoint mutates the state
+                copyState(setpointStates[i], loggedSetpointStates[i]);
+                modules[i].runSetpoint(setpointStates[i]);
+                copyState(setpointStates[i], loggedOptimizedStates[i]);
+            }
+            loggedSetpointSpeeds.vxMetersPerSecond = speeds.vxMetersPerSecond;
+            loggedSetpointSpeeds.vyMetersPerSecond = speeds.vyMetersPerSecond;
+            loggedSetpointSpeeds.omegaRadiansPerSecond = speeds.omegaRadiansPerSecond;
+            hasSetpoints = true;
+        }
+    }
 
-        // Send setpoints to modules
-        for (int i = 0; i < 4; i++) {
-            modules[i].runSetpoint(setpointStates[i]);
+    private void logSetpoints() {
+        // Serialized under the lock, so the control loop cannot change them halfway through
+        synchronized (moduleOutputLock) {
+            if (!hasSetpoints) return;
+            Logger.recordOutput("SwerveStates/Setpoints", loggedSetpointStates);
+            Logger.recordOutput("SwerveChassisSpeeds/Setpoints", loggedSetpointSpeeds);
+            Logger.recordOutput("SwerveStates/SetpointsOptimized", loggedOptimizedStates);
         }
+    }
 
-        // Log optimized setpoints (runSetpoint mutates each state)
-        Logger.recordOutput("SwerveStates/SetpointsOptimized", setpointStates);
+    private static void copyState(SwerveModuleState from, SwerveModuleState to) {
+        to.speedMetersPerSecond = from.speedMetersPerSecond;
+        to.angle = from.angle;
+    }
+
+    private static SwerveModuleState[] newModuleStates() {
+        return new SwerveModuleState[] {
+            new SwerveModuleState(),
+            new SwerveModuleState(),
+            new SwerveModuleState(),
+            new SwerveModuleState()
+        };
     }
 
     /** Runs the drive in a straight line with the specified drive output. */
     public void runCharacterization(double output) {
-        for (int i = 0; i < 4; i++) {
-            modules[i].runCharacterization(output);
+        synchronized (moduleOutputLock) {
+            velocityCommand = null;
+            for (int i = 0; i < 4; i++) {
+                modules[i].runCharacterization(output);
+            }
         }
     }
 
@@ -388,7 +662,9 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
         for (int i = 0; i < 4; i++) {
             headings[i] = getModuleTranslations()[i].getAngle();
         }
-        kinematics.resetHeadings(headings);
+        synchronized (moduleOutputLock) {
+            kinematics.resetHeadings(headings);
+        }
         stop();
     }
 
@@ -410,14 +686,13 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
                 .andThen(sysId.dynamic(direction));
     }
 
-    /** Returns the module states (turn angles and drive velocities) for all of the modules. */
+    /**
+     * Returns the module states (turn angles and drive velocities) for all of the modules, as
+     * measured in the last periodic.
+     */
     @AutoLogOutput(key = "SwerveStates/Measured")
-    private SwerveModuleState[] getModuleStates() {
-        SwerveModuleState[] states = new SwerveModuleState[4];
-        for (int i = 0; i < 4; i++) {
-            states[i] = modules[i].getState();
-        }
-        return states;
+    public SwerveModuleState[] getModuleStates() {
+        return measuredModuleStates;
     }
 
     public void resetGyro(Angle resetHeading) {
@@ -433,16 +708,15 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
         return states;
     }
 
-    /** Returns the measured chassis speeds of the robot. */
+    /** Returns the measured chassis speeds of the robot, as of the last periodic. */
     @AutoLogOutput(key = "SwerveChassisSpeeds/Measured")
     public ChassisSpeeds getChassisSpeeds() {
-        return kinematics.toChassisSpeeds(getModuleStates());
+        return measuredChassisSpeeds;
     }
 
     @AutoLogOutput(key = "SwerveChassisSpeeds/MeasuredFieldOriented")
     public ChassisSpeeds getFieldOrientedSpeeds() {
-        return ChassisSpeeds.fromRobotRelativeSpeeds(
-                kinematics.toChassisSpeeds(getModuleStates()), getRotation());
+        return ChassisSpeeds.fromRobotRelativeSpeeds(measuredChassisSpeeds, getRotation());
     }
 
     /** Returns the position of each module in radians. */
@@ -466,9 +740,35 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
     /** Returns the current odometry pose. */
     @AutoLogOutput(key = "Odometry/Robot")
     public Pose2d getPose() {
+        if (threadedPoseEstimator != null) return threadedPoseEstimator.getSnapshot().pose();
         return poseEstimator.getEstimatedPosition();
     }
 
+    /**
+     * Returns the latest estimate published by the odometry thread, or null if the pose is
+     * estimated in periodic.
+     */
+    public ThreadedPoseEstimator.Snapshot getThreadedPoseSnapshot() {
+        return threadedPoseEstimator != null ? threadedPoseEstimator.getSnapshot() : null;
+    }
+
+    /**
+     * Returns the estimated pose at the given timestamp, interpolated from the pose history. Falls
+     * back to the current pose if no samples were recorded yet.
+     */
+    public Pose2d getPoseAt(double timestampSeconds) {
+        if (!poseHistory.sample(timestampSeconds, poseHistorySample)) return getPose();
+        return new Pose2d(
+                poseHistorySample[PoseHistory.X],
+                poseHistorySample[PoseHistory.Y],
+                Rotation2d.fromRadians(poseHistorySample[PoseHistory.THETA]));
+    }
+
+    /** Returns the timestamped history of estimated poses. */
+    public PoseHistory getPoseHistory() {
+        return poseHistory;
+    }
+
     /** Returns the current odometry rotation. */
     public Rotation2d getRotation() {
         return getPose().getRotation();
@@ -481,19 +781,49 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
     /** Resets the current odometry pose. */
     public void resetOdometry(Pose2d pose) {
         resetSimulationPoseCallBack.accept(pose);
-        poseEstimator.resetPosition(rawGyroRotation, getModulePositions(), pose);
+        poseEstimator.resetPosition(rawGyroRotation, correctedModulePositions, pose);
+        if (threadedPoseEstimator != null) threadedPoseEstimator.resetPose(pose);
+        poseHistory.clear();
     }
 
-    /** Adds a new timestamped vision measurement. */
+    /**
+     * Adds a new timestamped vision measurement. Measurements are applied together, sorted by
+     * timestamp, by {@link #flushVisionMeasurements()}. Measurements made shortly after an impact
+     * are trusted more, since the wheels may have slipped.
+     */
     @Override
     public void accept(
             Pose2d visionRobotPoseMeters,
             double timestampSeconds,
             Matrix<N3, N1> visionMeasurementStdDevs) {
-        poseEstimator.addVisionMeasurement(
+        double timeSinceImpact = timestampSeconds - lastImpactTimestamp;
+        if (timeSinceImpact > -SCHEDULER_LOOP_PERIOD && timeSinceImpact < IMPACT_RECOVERY_SECONDS) {
+            visionMeasurementStdDevs = visionMeasurementStdDevs.times(IMPACT_VISION_STD_DEV_FACTOR);
+        }
+        if (threadedPoseEstimator != null) {
+            threadedPoseEstimator.addVisionMeasurement(
+                    visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs);
+            return;
+        }
+        poseEstimator.queueVisionMeasurement(
                 visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs);
     }
 
+    /**
+     * Samples the history of estimated poses, to gate vision measurements. When the pose is
+     * estimated on the odometry thread, the history only has one sample per periodic.
+     */
+    @Override
+    public boolean samplePoseAt(double timestampSeconds, double[] out) {
+        return poseHistory.sample(timestampSeconds, out);
+    }
+
+    /** Applies the vision measurements added since the last flush. */
+    @Override
+    public void flushVisionMeasurements() {
+        poseEstimator.applyQueuedVisionMeasurements();
+    }
+
     /** Returns the maximum linear speed in meters per sec. */
     public double getMaxLinearSpeedMetersPerSec() {
         return TunerConstants.kSpeedAt12Volts.in(MetersPerSecond);
@@ -519,9 +849,7 @@ public class Drive extends SubsystemBase implements Vision.VisionConsumer, SysId
 
     @Override
     public void setVoltage(@NotNull Voltage voltage) {
-        for (int i = 0; i < 4; i++) {
-            modules[i].runCharacterization(voltage.in(Volts));
-        }
+        runCharacterization(voltage.in(Volts));
     }
 
     @Override
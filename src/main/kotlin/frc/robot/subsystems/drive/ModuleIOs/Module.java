@@ -32,12 +32,18 @@ public class Module {
     private final Alert driveDisconnectedAlert;
     private final Alert turnDisconnectedAlert;
     private final Alert turnEncoderDisconnectedAlert;
+    private final String inputsKey;
+
+    // Pooled odometry positions, reused every cycle
     private SwerveModulePosition[] odometryPositions = new SwerveModulePosition[] {};
+    private int odometrySampleCount = 0;
+    private Rotation2d lastOdometryAngle = new Rotation2d();
 
     public Module(ModuleIO io, int index, SwerveModuleConstants constants) {
         this.io = io;
         this.index = index;
         this.constants = constants;
+        inputsKey = "Drive/Module" + Integer.toString(index);
         driveDisconnectedAlert =
                 new Alert(
                         "Disconnected drive motor on module " + Integer.toString(index) + ".",
@@ -54,15 +60,28 @@ public class Module {
 
     public void periodic() {
         io.updateInputs(inputs);
-        Logger.processInputs("Drive/Module" + Integer.toString(index), inputs);
-
-        // Calculate positions for odometry
-        int sampleCount = inputs.odometryTimestamps.length; // All signals are sampled together
-        odometryPositions = new SwerveModulePosition[sampleCount];
-        for (int i = 0; i < sampleCount; i++) {
-            double positionMeters = inputs.odometryDrivePositionsRad[i] * constants.WheelRadius;
-            Rotation2d angle = inputs.odometryTurnPositions[i];
-            odometryPositions[i] = new SwerveModulePosition(positionMeters, angle);
+        Logger.processInputs(inputsKey, inputs);
+
+        // Calculate positions for odometry into the pool, which only grows when more samples
+        // arrive than ever before
+        odometrySampleCount = inputs.odometryTimestamps.length; // All signals sampled together
+        if (odometryPositions.length < odometrySampleCount) {
+            SwerveModulePosition[] positions = new SwerveModulePosition[odometrySampleCount];
+            System.arraycopy(odometryPositions, 0, positions, 0, odometryPositions.length);
+            for (int i = odometryPositions.length; i < odometrySampleCount; i++) {
+                positions[i] = new SwerveModulePosition();
+            }
+            odometryPositions = positions;
+        }
+        for (int i = 0; i < odometrySampleCount; i++) {
+            // Rotation2d is immutable, reuse the last one while the module is not turning
+            double angleRad = inputs.odometryTurnPositionsRad[i];
+            if (lastOdometryAngle.getRadians() != angleRad) {
+                lastOdometryAngle = Rotation2d.fromRadians(angleRad);
+            }
+            odometryPositions[i].distanceMeters =
+                    inputs.odometryDrivePositionsRad[i] * constants.WheelRadius;
+            odometryPositions[i].angle = lastOdometryAngle;
         }
 
         // Update alerts
@@ -124,9 +143,17 @@ public class Module {
         return new SwerveModuleState(getVelocityMetersPerSec(), getAngle());
     }
 
-    /** Returns the module positions received this cycle. */
-    public SwerveModulePosition[] getOdometryPositions() {
-        return odometryPositions;
+    /** Returns the number of odometry samples received this cycle. */
+    public int getOdometrySampleCount() {
+        return odometrySampleCount;
+    }
+
+    /**
+     * Returns the module position of the given odometry sample received this cycle. The instance
+     * is pooled and overwritten next cycle, copy it to keep it.
+     */
+    public SwerveModulePosition getOdometryPosition(int sampleIndex) {
+        return odometryPositions[sampleIndex];
     }
 
     /** Returns the timestamps of the samples received this cycle. */
@@ -36,7 +36,7 @@ public interface ModuleIO {
 
         public double[] odometryTimestamps = new double[] {};
         public double[] odometryDrivePositionsRad = new double[] {};
-        public Rotation2d[] odometryTurnPositions = new Rotation2d[] {};
+        public double[] odometryTurnPositionsRad = new double[] {};
     }
 
     /** Updates the set of loggable inputs. */
@@ -55,4 +55,20 @@ public interface ModuleIO {
     public default void setTurnPosition(Rotation2d rotation) {}
 
     public default void updateGains(LoggedNetworkGains turnGains, LoggedNetworkGains driveGains) {}
+
+    /**
+     * Returns the newest drive position in radians sampled by the odometry thread, or NaN if this
+     * IO does not sample on it. Must only be called from the odometry thread.
+     */
+    public default double getLatestOdometryDrivePositionRad() {
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the newest turn position in radians sampled by the odometry thread, or NaN if this
+     * IO does not sample on it. Must only be called from the odometry thread.
+     */
+    public default double getLatestOdometryTurnPositionRad() {
+        return Double.NaN;
+    }
 }
@@ -112,7 +112,10 @@ public class ModuleIOSim implements ModuleIO {
                 Arrays.stream(moduleSimulation.getCachedDriveWheelFinalPositions())
                         .mapToDouble(angle -> angle.in(Radians))
                         .toArray();
-        inputs.odometryTurnPositions = moduleSimulation.getCachedSteerAbsolutePositions();
+        inputs.odometryTurnPositionsRad =
+                Arrays.stream(moduleSimulation.getCachedSteerAbsolutePositions())
+                        .mapToDouble(Rotation2d::getRadians)
+                        .toArray();
     }
 
     @Override
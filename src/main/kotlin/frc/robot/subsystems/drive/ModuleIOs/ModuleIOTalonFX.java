@@ -14,6 +14,7 @@
 package frc.robot.subsystems.drive.ModuleIOs;
 
 import static frc.robot.lib.PhoenixUtil.tryUntilOk;
+import static frc.robot.lib.PhoenixUtil.tryUntilOkAsync;
 
 import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusSignal;
@@ -35,11 +36,12 @@ import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.AngularVelocity;
 import edu.wpi.first.units.measure.Current;
 import edu.wpi.first.units.measure.Voltage;
+import frc.robot.lib.DoubleRingBuffer;
 import frc.robot.lib.LoggedNetworkGains;
+import frc.robot.lib.StatusSignalRegistry;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.drive.PhoenixOdometryThread;
 import frc.robot.subsystems.drive.TunerConstants;
-import java.util.Queue;
 
 /**
  * Module IO implementation for Talon FX drive motor controller, Talon FX turn motor controller, and
@@ -70,11 +72,11 @@ public class ModuleIOTalonFX implements ModuleIO {
             new VelocityTorqueCurrentFOC(0.0);
 
     // Timestamp inputs from Phoenix thread
-    private final Queue<Double> timestampQueue;
+    private final DoubleRingBuffer timestampQueue;
 
     // Inputs from drive motor
     private final StatusSignal<Angle> drivePosition;
-    private final Queue<Double> drivePositionQueue;
+    private final DoubleRingBuffer drivePositionQueue;
     private final StatusSignal<AngularVelocity> driveVelocity;
     private final StatusSignal<Voltage> driveAppliedVolts;
     private final StatusSignal<Current> driveCurrent;
@@ -82,16 +84,25 @@ public class ModuleIOTalonFX implements ModuleIO {
     // Inputs from turn motor
     private final StatusSignal<Angle> turnAbsolutePosition;
     private final StatusSignal<Angle> turnPosition;
-    private final Queue<Double> turnPositionQueue;
+    private final DoubleRingBuffer turnPositionQueue;
     private final StatusSignal<AngularVelocity> turnVelocity;
     private final StatusSignal<Voltage> turnAppliedVolts;
     private final StatusSignal<Current> turnCurrent;
 
+    // Signal groups used for connection checks
+    private final BaseStatusSignal[] driveSignals;
+    private final BaseStatusSignal[] turnSignals;
+    private final BaseStatusSignal[] turnEncoderSignals;
+
     // Connection debouncers
     private final Debouncer driveConnectedDebounce = new Debouncer(0.5);
     private final Debouncer turnConnectedDebounce = new Debouncer(0.5);
     private final Debouncer turnEncoderConnectedDebounce = new Debouncer(0.5);
 
+    // Last tuned gain versions sent to the motors
+    private int appliedTurnGainsVersion = 0;
+    private int appliedDriveGainsVersion = 0;
+
     public ModuleIOTalonFX(
             SwerveModuleConstants<TalonFXConfiguration, TalonFXConfiguration, CANcoderConfiguration>
                     constants) {
@@ -153,13 +164,9 @@ public class ModuleIOTalonFX implements ModuleIO {
                         : SensorDirectionValue.CounterClockwise_Positive;
         cancoder.getConfigurator().apply(cancoderConfig);
 
-        // Create timestamp queue
-        timestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
-
         // Create drive status signals
         drivePosition = driveTalon.getPosition();
-        drivePositionQueue =
-                PhoenixOdometryThread.getInstance().registerSignal(driveTalon.getPosition());
+        drivePositionQueue = PhoenixOdometryThread.getInstance().registerSignal(drivePosition);
         driveVelocity = driveTalon.getVelocity();
         driveAppliedVolts = driveTalon.getMotorVoltage();
         driveCurrent = driveTalon.getStatorCurrent();
@@ -167,12 +174,15 @@ public class ModuleIOTalonFX implements ModuleIO {
         // Create turn status signals
         turnAbsolutePosition = cancoder.getAbsolutePosition();
         turnPosition = turnTalon.getPosition();
-        turnPositionQueue =
-                PhoenixOdometryThread.getInstance().registerSignal(turnTalon.getPosition());
+        turnPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(turnPosition);
         turnVelocity = turnTalon.getVelocity();
         turnAppliedVolts = turnTalon.getMotorVoltage();
         turnCurrent = turnTalon.getStatorCurrent();
 
+        // Create timestamp queue, stamped from this module's position signals
+        timestampQueue =
+                PhoenixOdometryThread.getInstance().makeTimestampQueue(drivePosition, turnPosition);
+
         // Configure periodic frames
         BaseStatusSignal.setUpdateFrequencyForAll(
                 Drive.ODOMETRY_FREQUENCY, drivePosition, turnPosition);
@@ -186,37 +196,60 @@ public class ModuleIOTalonFX implements ModuleIO {
                 turnAppliedVolts,
                 turnCurrent);
         ParentDevice.optimizeBusUtilizationForAll(driveTalon, turnTalon);
+
+        // Register signals to be refreshed together with the rest of the bus
+        driveSignals =
+                new BaseStatusSignal[] {
+                    drivePosition, driveVelocity, driveAppliedVolts, driveCurrent
+                };
+        turnSignals =
+                new BaseStatusSignal[] {turnPosition, turnVelocity, turnAppliedVolts, turnCurrent};
+        turnEncoderSignals = new BaseStatusSignal[] {turnAbsolutePosition};
+        StatusSignalRegistry.register(TunerConstants.DrivetrainConstants.CANBusName, driveSignals);
+        StatusSignalRegistry.register(TunerConstants.DrivetrainConstants.CANBusName, turnSignals);
+        StatusSignalRegistry.register(
+                TunerConstants.DrivetrainConstants.CANBusName, turnEncoderSignals);
     }
 
     @Override
     public void updateGains(LoggedNetworkGains turnGains, LoggedNetworkGains driveGains) {
-        turnTalon.getConfigurator().apply(turnGains.toSlotConfig());
-        turnTalon.getConfigurator().apply(turnGains.toMotionMagicConfig());
-        driveTalon.getConfigurator().apply(driveGains.toSlotConfig());
+        // Only send configs when a tuned value changed, the writes go out on a background worker
+        int turnGainsVersion = turnGains.getVersion();
+        if (turnGainsVersion != appliedTurnGainsVersion) {
+            appliedTurnGainsVersion = turnGainsVersion;
+            var turnSlotConfig = turnGains.toSlotConfig();
+            var turnMotionMagicConfig = turnGains.toMotionMagicConfig();
+            tryUntilOkAsync(5, () -> turnTalon.getConfigurator().apply(turnSlotConfig, 0.25));
+            tryUntilOkAsync(
+                    5, () -> turnTalon.getConfigurator().apply(turnMotionMagicConfig, 0.25));
+        }
+
+        int driveGainsVersion = driveGains.getVersion();
+        if (driveGainsVersion != appliedDriveGainsVersion) {
+            appliedDriveGainsVersion = driveGainsVersion;
+            var driveSlotConfig = driveGains.toSlotConfig();
+            tryUntilOkAsync(5, () -> driveTalon.getConfigurator().apply(driveSlotConfig, 0.25));
+        }
     }
 
     @Override
     public void updateInputs(ModuleIOInputs inputs) {
-        // Refresh all signals
-        var driveStatus =
-                BaseStatusSignal.refreshAll(
-                        drivePosition, driveVelocity, driveAppliedVolts, driveCurrent);
-        var turnStatus =
-                BaseStatusSignal.refreshAll(
-                        turnPosition, turnVelocity, turnAppliedVolts, turnCurrent);
-        var turnEncoderStatus = BaseStatusSignal.refreshAll(turnAbsolutePosition);
+        // Signals were already refreshed this loop by StatusSignalRegistry
 
         // Update drive inputs
-        inputs.driveConnected = driveConnectedDebounce.calculate(driveStatus.isOK());
+        inputs.driveConnected =
+                driveConnectedDebounce.calculate(BaseStatusSignal.isAllGood(driveSignals));
         inputs.drivePositionRad = Units.rotationsToRadians(drivePosition.getValueAsDouble());
         inputs.driveVelocityRadPerSec = Units.rotationsToRadians(driveVelocity.getValueAsDouble());
         inputs.driveAppliedVolts = driveAppliedVolts.getValueAsDouble();
         inputs.driveCurrentAmps = driveCurrent.getValueAsDouble();
 
         // Update turn inputs
-        inputs.turnConnected = turnConnectedDebounce.calculate(turnStatus.isOK());
+        inputs.turnConnected =
+                turnConnectedDebounce.calculate(BaseStatusSignal.isAllGood(turnSignals));
         inputs.turnEncoderConnected =
-                turnEncoderConnectedDebounce.calculate(turnEncoderStatus.isOK());
+                turnEncoderConnectedDebounce.calculate(
+                        BaseStatusSignal.isAllGood(turnEncoderSignals));
         inputs.turnAbsolutePosition =
                 Rotation2d.fromRotations(turnAbsolutePosition.getValueAsDouble());
         inputs.turnPosition = Rotation2d.fromRotations(turnPosition.getValueAsDouble());
@@ -224,20 +257,23 @@ public class ModuleIOTalonFX implements ModuleIO {
         inputs.turnAppliedVolts = turnAppliedVolts.getValueAsDouble();
         inputs.turnCurrentAmps = turnCurrent.getValueAsDouble();
 
-        // Update odometry inputs
-        inputs.odometryTimestamps =
-                timestampQueue.stream().mapToDouble((Double value) -> value).toArray();
+        // Update odometry inputs, draining only the samples latched for this cycle
+        int sampleCount = PhoenixOdometryThread.getInstance().getLatchedSampleCount(timestampQueue);
+        inputs.odometryTimestamps = timestampQueue.drain(sampleCount, null);
         inputs.odometryDrivePositionsRad =
-                drivePositionQueue.stream()
-                        .mapToDouble((Double value) -> Units.rotationsToRadians(value))
-                        .toArray();
-        inputs.odometryTurnPositions =
-                turnPositionQueue.stream()
-                        .map((Double value) -> Rotation2d.fromRotations(value))
-                        .toArray(Rotation2d[]::new);
-        timestampQueue.clear();
-        drivePositionQueue.clear();
-        turnPositionQueue.clear();
+                drivePositionQueue.drain(sampleCount, Units::rotationsToRadians);
+        inputs.odometryTurnPositionsRad =
+                turnPositionQueue.drain(sampleCount, Units::rotationsToRadians);
+    }
+
+    @Override
+    public double getLatestOdometryDrivePositionRad() {
+        return Units.rotationsToRadians(drivePositionQueue.getLastOffered());
+    }
+
+    @Override
+    public double getLatestOdometryTurnPositionRad() {
+        return Units.rotationsToRadians(turnPositionQueue.getLastOffered());
     }
 
     @Override
@@ -0,0 +1,78 @@
+package frc.robot.subsystems.drive;
+
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.CANBus.CANBusStatus;
+import edu.wpi.first.wpilibj.Timer;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Adjusts the odometry sample rate at runtime, to the highest rate the drivetrain bus can sustain.
+ *
+ * <p>Once per update period, the rate is lowered a step when the bus utilization is high or the
+ * odometry thread dropped samples or failed to receive signals, and raised a step when the bus
+ * has spare capacity. Every decision is logged under {@code Odometry/RateController}.
+ */
+public class OdometryRateController {
+    private static final String LOG_PREFIX = "Odometry/RateController/";
+
+    private static final double MIN_FREQUENCY = 50.0;
+    private static final double MAX_FREQUENCY = Drive.ODOMETRY_FREQUENCY;
+    private static final double FREQUENCY_STEP = 25.0;
+    private static final double UPDATE_PERIOD = 1.0;
+    // Utilization above which the rate is lowered, and below which it may be raised
+    private static final double HIGH_BUS_UTILIZATION = 0.8;
+    private static final double LOW_BUS_UTILIZATION = 0.6;
+
+    private final CANBus canBus;
+    private final PhoenixOdometryThread odometryThread;
+
+    private double lastUpdateTimestamp = 0.0;
+    private long lastDroppedSamples = 0;
+    private long lastFailedWaits = 0;
+
+    public OdometryRateController(CANBus canBus, PhoenixOdometryThread odometryThread) {
+        this.canBus = canBus;
+        this.odometryThread = odometryThread;
+    }
+
+    /** Updates the rate once per update period. Must be called by the main loop. */
+    public void periodic() {
+        double now = Timer.getFPGATimestamp();
+        if (now - lastUpdateTimestamp < UPDATE_PERIOD) return;
+        lastUpdateTimestamp = now;
+
+        CANBusStatus status = canBus.getStatus();
+        if (!status.Status.isOK()) {
+            Logger.recordOutput(LOG_PREFIX + "Decision", "Hold: bus status " + status.Status);
+            return;
+        }
+
+        long droppedSamples = odometryThread.getDroppedSampleCount();
+        long failedWaits = odometryThread.getFailedWaitCount();
+        boolean isStarving = droppedSamples > lastDroppedSamples || failedWaits > lastFailedWaits;
+        lastDroppedSamples = droppedSamples;
+        lastFailedWaits = failedWaits;
+
+        double frequency = odometryThread.getFrequency();
+        double targetFrequency = frequency;
+        String decision;
+        if (status.BusUtilization > HIGH_BUS_UTILIZATION || isStarving) {
+            targetFrequency = Math.max(MIN_FREQUENCY, frequency - FREQUENCY_STEP);
+            decision = isStarving ? "Lower: odometry starving" : "Lower: bus utilization high";
+        } else if (status.BusUtilization < LOW_BUS_UTILIZATION) {
+            targetFrequency = Math.min(MAX_FREQUENCY, frequency + FREQUENCY_STEP);
+            decision = "Raise: bus utilization low";
+        } else {
+            decision = "Hold";
+        }
+        if (targetFrequency != frequency) {
+            odometryThread.setFrequency(targetFrequency);
+        } else if (!decision.equals("Hold")) {
+            decision = "Hold: at limit";
+        }
+
+        Logger.recordOutput(LOG_PREFIX + "BusUtilization", status.BusUtilization);
+        Logger.recordOutput(LOG_PREFIX + "FrequencyHz", targetFrequency);
+        Logger.recordOutput(LOG_PREFIX + "Decision", decision);
+    }
+}
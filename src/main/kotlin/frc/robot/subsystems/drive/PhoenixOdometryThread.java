@@ -15,33 +15,94 @@ package frc.robot.subsystems.drive;
 
 import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.Timestamp;
+import com.ctre.phoenix6.Timestamp.TimestampSource;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.lib.ClockOffsetEstimator;
+import frc.robot.lib.DoubleRingBuffer;
+import frc.robot.lib.PhoenixUtil;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.DoubleSupplier;
+import org.littletonrobotics.junction.Logger;
 
 /**
- * Provides an interface for asynchronously reading high-frequency measurements to a set of queues.
+ * Provides an interface for asynchronously reading high-frequency measurements to a set of
+ * primitive ring buffers.
  *
  * <p>This version is intended for Phoenix 6 devices on both the RIO and CANivore buses. When using
  * a CANivore, the thread uses the "waitForAll" blocking method to enable more consistent sampling.
  * This also allows Phoenix Pro users to benefit from lower latency between devices using CANivore
  * time synchronization.
+ *
+ * <p>The hand-off to the main loop is lock-free. After a sample has been written to every buffer,
+ * the thread advances a published sample epoch. The main loop latches that epoch once per cycle
+ * with {@link #latchSamples()}, and every IO drains exactly the samples up to the latched epoch,
+ * so all modules and the gyro see the same sample count without either side ever waiting.
+ *
+ * <p>Optionally, each timestamp buffer can be stamped from the hardware timestamps of its own
+ * device's signals, converted to the FPGA timebase by a {@link ClockOffsetEstimator} per buffer.
+ *
+ * <p>The thread also keeps allocation-free sampling statistics (rate, period histogram, jitter,
+ * per-signal latency, dropped samples and failed waits), logged with {@link #logStatistics}.
  */
 public class PhoenixOdometryThread extends Thread {
-    private final Lock signalsLock =
-            new ReentrantLock(); // Prevents conflicts when registering signals
+    /** Receives every complete sample on the odometry thread, right after it was published. */
+    public interface SampleListener {
+        void onSample(double timestamp);
+    }
+
+    private static final int SAMPLE_BUFFER_CAPACITY = 32;
+    private static final String LOG_PREFIX = "Odometry/Thread/";
+    // Whether samples are stamped with each device's own hardware timestamps
+    private static final boolean USE_HARDWARE_TIMESTAMPS = false;
+    // How fast a hardware clock offset estimate may rise, well above typical crystal drift
+    private static final double MAX_CLOCK_DRIFT_PER_SECOND = 1e-4;
+    // One bin per millisecond of sample period, the last bin collects every longer period
+    private static final int PERIOD_HISTOGRAM_BINS = 21;
+
     private BaseStatusSignal[] phoenixSignals = new BaseStatusSignal[0];
     private final List<DoubleSupplier> genericSignals = new ArrayList<>();
-    private final List<Queue<Double>> phoenixQueues = new ArrayList<>();
-    private final List<Queue<Double>> genericQueues = new ArrayList<>();
-    private final List<Queue<Double>> timestampQueues = new ArrayList<>();
+    private final List<DoubleRingBuffer> phoenixQueues = new ArrayList<>();
+    private final List<DoubleRingBuffer> genericQueues = new ArrayList<>();
+    private final List<DoubleRingBuffer> timestampQueues = new ArrayList<>();
+    private final List<BaseStatusSignal[]> timestampSources = new ArrayList<>();
+    private final List<ClockOffsetEstimator> timestampClocks = new ArrayList<>();
+    private final List<TimestampSource> timestampClockSources = new ArrayList<>();
+    private final List<DoubleRingBuffer> allQueues = new ArrayList<>();
+    private final List<SampleListener> sampleListeners = new ArrayList<>();
+
+    // Number of complete samples written to every buffer, only advanced by this thread
+    private final AtomicLong publishedSamples = new AtomicLong();
+    // Epoch latched by the main loop for the current cycle, only accessed by the main loop
+    private long latchedSamples = 0;
+
+    // Hand-off timing, reset whenever the main loop reads it
+    private final AtomicLong maxPublishNanos = new AtomicLong();
+    private long lastLatchNanos = 0;
+
+    // Sampling statistics, only advanced by this thread
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private final AtomicLong failedWaits = new AtomicLong();
+    private final AtomicLong maxJitterNanos = new AtomicLong();
+    private final AtomicLongArray periodHistogram = new AtomicLongArray(PERIOD_HISTOGRAM_BINS);
+    private AtomicLongArray maxSignalLatencyNanos = new AtomicLongArray(0);
+
+    // Previous statistics window, only accessed by the main loop
+    private long lastLoggedSamples = 0;
+    private long lastLoggedNanos = System.nanoTime();
+    private final long[] loggedPeriodHistogram = new long[PERIOD_HISTOGRAM_BINS];
+    private double[] loggedSignalLatenciesMs = new double[0];
+
+    private boolean started = false;
+
+    // Current sample rate, adjusted at runtime by the main loop
+    private volatile double frequency = Drive.ODOMETRY_FREQUENCY;
 
     private static boolean isCANFD =
             new CANBus(TunerConstants.DrivetrainConstants.CANBusName).isNetworkFD();
@@ -61,105 +122,291 @@ public class PhoenixOdometryThread extends Thread {
 
     @Override
     public void start() {
+        started = true;
+        maxSignalLatencyNanos = new AtomicLongArray(phoenixSignals.length);
+        loggedSignalLatenciesMs = new double[phoenixSignals.length];
         if (timestampQueues.size() > 0) {
             super.start();
         }
     }
 
     /** Registers a Phoenix signal to be read from the thread. */
-    public Queue<Double> registerSignal(StatusSignal<Angle> signal) {
-        Queue<Double> queue = new ArrayBlockingQueue<>(20);
-        signalsLock.lock();
-        Drive.odometryLock.lock();
-        try {
-            BaseStatusSignal[] newSignals = new BaseStatusSignal[phoenixSignals.length + 1];
-            System.arraycopy(phoenixSignals, 0, newSignals, 0, phoenixSignals.length);
-            newSignals[phoenixSignals.length] = signal;
-            phoenixSignals = newSignals;
-            phoenixQueues.add(queue);
-        } finally {
-            signalsLock.unlock();
-            Drive.odometryLock.unlock();
-        }
+    public DoubleRingBuffer registerSignal(StatusSignal<Angle> signal) {
+        DoubleRingBuffer queue = makeQueue();
+        BaseStatusSignal[] newSignals = new BaseStatusSignal[phoenixSignals.length + 1];
+        System.arraycopy(phoenixSignals, 0, newSignals, 0, phoenixSignals.length);
+        newSignals[phoenixSignals.length] = signal;
+        phoenixSignals = newSignals;
+        phoenixQueues.add(queue);
         return queue;
     }
 
     /** Registers a generic signal to be read from the thread. */
-    public Queue<Double> registerSignal(DoubleSupplier signal) {
-        Queue<Double> queue = new ArrayBlockingQueue<>(20);
-        signalsLock.lock();
-        Drive.odometryLock.lock();
-        try {
-            genericSignals.add(signal);
-            genericQueues.add(queue);
-        } finally {
-            signalsLock.unlock();
-            Drive.odometryLock.unlock();
-        }
+    public DoubleRingBuffer registerSignal(DoubleSupplier signal) {
+        DoubleRingBuffer queue = makeQueue();
+        genericSignals.add(signal);
+        genericQueues.add(queue);
+        return queue;
+    }
+
+    /** Returns a new buffer that holds the timestamp of each sample. */
+    public DoubleRingBuffer makeTimestampQueue() {
+        return makeTimestampQueue(new BaseStatusSignal[0]);
+    }
+
+    /**
+     * Returns a new buffer that holds the timestamp of each sample. With hardware timestamps
+     * enabled, each sample is stamped with the mean hardware timestamp of the given signals, which
+     * must be registered with {@link #registerSignal(StatusSignal)}.
+     */
+    public DoubleRingBuffer makeTimestampQueue(BaseStatusSignal... sourceSignals) {
+        DoubleRingBuffer queue = makeQueue();
+        timestampQueues.add(queue);
+        timestampSources.add(sourceSignals);
+        timestampClocks.add(new ClockOffsetEstimator(MAX_CLOCK_DRIFT_PER_SECOND));
+        timestampClockSources.add(null);
         return queue;
     }
 
-    /** Returns a new queue that returns timestamp values for each sample. */
-    public Queue<Double> makeTimestampQueue() {
-        Queue<Double> queue = new ArrayBlockingQueue<>(20);
-        Drive.odometryLock.lock();
-        try {
-            timestampQueues.add(queue);
-        } finally {
-            Drive.odometryLock.unlock();
+    /**
+     * Adds a listener called on the odometry thread after every sample. Listeners may read the
+     * newest sample with {@link DoubleRingBuffer#getLastOffered()}.
+     */
+    public void addSampleListener(SampleListener listener) {
+        checkNotStarted();
+        sampleListeners.add(listener);
+    }
+
+    private void checkNotStarted() {
+        // Signals are only registered while the IOs are constructed. Registering before the
+        // thread starts keeps every buffer in the same epoch, and Thread.start() publishes the
+        // registered signals to the thread.
+        if (started) {
+            throw new IllegalStateException(
+                    "Odometry signals must be registered before the odometry thread starts");
         }
+    }
+
+    private DoubleRingBuffer makeQueue() {
+        checkNotStarted();
+        DoubleRingBuffer queue = new DoubleRingBuffer(SAMPLE_BUFFER_CAPACITY);
+        allQueues.add(queue);
         return queue;
     }
 
+    /**
+     * Latches the samples published so far as this cycle's snapshot. Must be called by the main
+     * loop before any odometry IO reads its buffers.
+     */
+    public void latchSamples() {
+        long latchStart = System.nanoTime();
+        latchedSamples = publishedSamples.get();
+        lastLatchNanos = System.nanoTime() - latchStart;
+    }
+
+    /**
+     * Returns how many samples of the given buffer belong to the snapshot latched by {@link
+     * #latchSamples()}.
+     */
+    public int getLatchedSampleCount(DoubleRingBuffer queue) {
+        return (int) Math.max(0, Math.min(latchedSamples - queue.getReadCount(), queue.size()));
+    }
+
+    /**
+     * Returns the longest time in microseconds the thread spent publishing a single sample since
+     * the last call.
+     */
+    public double getAndResetMaxPublishMicros() {
+        return maxPublishNanos.getAndSet(0) / 1e3;
+    }
+
+    /** Returns the time in microseconds the main loop spent latching the last snapshot. */
+    public double getLastLatchMicros() {
+        return lastLatchNanos / 1e3;
+    }
+
+    /** Returns the current sample rate in Hz. */
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Changes the sample rate. The update frequency of the registered Phoenix signals is changed
+     * asynchronously, since configuring it blocks on the CAN bus.
+     */
+    public void setFrequency(double frequencyHz) {
+        frequency = frequencyHz;
+        if (phoenixSignals.length > 0) {
+            BaseStatusSignal[] signals = phoenixSignals;
+            PhoenixUtil.tryUntilOkAsync(
+                    5, () -> BaseStatusSignal.setUpdateFrequencyForAll(frequencyHz, signals));
+        }
+    }
+
+    /** Returns the total number of samples dropped because the main loop fell behind. */
+    public long getDroppedSampleCount() {
+        return droppedSamples.get();
+    }
+
+    /** Returns the total number of failed waits for or refreshes of the Phoenix signals. */
+    public long getFailedWaitCount() {
+        return failedWaits.get();
+    }
+
+    /**
+     * Logs the sampling statistics. Rates, jitter and latencies cover the time since the last
+     * call, counters and the period histogram are totals. Must be called by the main loop.
+     */
+    public void logStatistics() {
+        if (!isAlive()) return;
+
+        long now = System.nanoTime();
+        long samples = publishedSamples.get();
+        double windowSeconds = (now - lastLoggedNanos) / 1e9;
+        if (windowSeconds > 0.0) {
+            Logger.recordOutput(
+                    LOG_PREFIX + "SampleRateHz", (samples - lastLoggedSamples) / windowSeconds);
+        }
+        lastLoggedSamples = samples;
+        lastLoggedNanos = now;
+
+        for (int i = 0; i < PERIOD_HISTOGRAM_BINS; i++) {
+            loggedPeriodHistogram[i] = periodHistogram.get(i);
+        }
+        for (int i = 0; i < loggedSignalLatenciesMs.length; i++) {
+            loggedSignalLatenciesMs[i] = maxSignalLatencyNanos.getAndSet(i, 0) / 1e6;
+        }
+        Logger.recordOutput(LOG_PREFIX + "PeriodHistogramMs", loggedPeriodHistogram);
+        Logger.recordOutput(LOG_PREFIX + "MaxJitterMs", maxJitterNanos.getAndSet(0) / 1e6);
+        Logger.recordOutput(LOG_PREFIX + "MaxSignalLatenciesMs", loggedSignalLatenciesMs);
+        Logger.recordOutput(LOG_PREFIX + "DroppedSamples", droppedSamples.get());
+        Logger.recordOutput(LOG_PREFIX + "FailedWaits", failedWaits.get());
+    }
+
     @Override
     public void run() {
+        long nextDeadlineNanos = System.nanoTime();
+        long lastSampleNanos = 0;
         while (true) {
+            double currentFrequency = frequency;
+            long periodNanos = (long) (1e9 / currentFrequency);
+
             // Wait for updates from all signals
-            signalsLock.lock();
             try {
                 if (isCANFD && phoenixSignals.length > 0) {
-                    BaseStatusSignal.waitForAll(2.0 / Drive.ODOMETRY_FREQUENCY, phoenixSignals);
+                    StatusCode status =
+                            BaseStatusSignal.waitForAll(2.0 / currentFrequency, phoenixSignals);
+                    if (!status.isOK()) failedWaits.lazySet(failedWaits.get() + 1);
                 } else {
                     // "waitForAll" does not support blocking on multiple signals with a bus
                     // that is not CAN FD, regardless of Pro licensing. No reasoning for this
                     // behavior is provided by the documentation.
-                    Thread.sleep((long) (1000.0 / Drive.ODOMETRY_FREQUENCY));
-                    if (phoenixSignals.length > 0) BaseStatusSignal.refreshAll(phoenixSignals);
+                    // Sleep until fixed deadlines, so the rate does not drift with the time
+                    // spent reading, and resynchronize after falling more than a period behind.
+                    nextDeadlineNanos += periodNanos;
+                    long sleepNanos = nextDeadlineNanos - System.nanoTime();
+                    if (sleepNanos > 0) {
+                        Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                    } else if (sleepNanos < -periodNanos) {
+                        nextDeadlineNanos = System.nanoTime();
+                    }
+                    if (phoenixSignals.length > 0) {
+                        StatusCode status = BaseStatusSignal.refreshAll(phoenixSignals);
+                        if (!status.isOK()) failedWaits.lazySet(failedWaits.get() + 1);
+                    }
                 }
             } catch (InterruptedException e) {
                 e.printStackTrace();
-            } finally {
-                signalsLock.unlock();
             }
 
-            // Save new data to queues
-            Drive.odometryLock.lock();
-            try {
-                // Sample timestamp is current FPGA time minus average CAN latency
-                //     Default timestamps from Phoenix are NOT compatible with
-                //     FPGA timestamps, this solution is imperfect but close
-                double timestamp = RobotController.getFPGATime() / 1e6;
-                double totalLatency = 0.0;
-                for (BaseStatusSignal signal : phoenixSignals) {
-                    totalLatency += signal.getTimestamp().getLatency();
-                }
-                if (phoenixSignals.length > 0) {
-                    timestamp -= totalLatency / phoenixSignals.length;
-                }
+            // Record the sample period
+            long publishStart = System.nanoTime();
+            if (lastSampleNanos != 0) {
+                long period = publishStart - lastSampleNanos;
+                int bin = (int) Math.min(period / 1_000_000, PERIOD_HISTOGRAM_BINS - 1);
+                periodHistogram.lazySet(bin, periodHistogram.get(bin) + 1);
+                maxJitterNanos.accumulateAndGet(Math.abs(period - periodNanos), Math::max);
+            }
+            lastSampleNanos = publishStart;
 
-                // Add new samples to queues
-                for (int i = 0; i < phoenixSignals.length; i++) {
-                    phoenixQueues.get(i).offer(phoenixSignals[i].getValueAsDouble());
-                }
-                for (int i = 0; i < genericSignals.size(); i++) {
-                    genericQueues.get(i).offer(genericSignals.get(i).getAsDouble());
-                }
-                for (int i = 0; i < timestampQueues.size(); i++) {
-                    timestampQueues.get(i).offer(timestamp);
-                }
-            } finally {
-                Drive.odometryLock.unlock();
+            // Sample timestamp is current FPGA time minus average CAN latency
+            //     Default timestamps from Phoenix are NOT compatible with
+            //     FPGA timestamps, this solution is imperfect but close
+            double receiveTimestamp = RobotController.getFPGATime() / 1e6;
+            double timestamp = receiveTimestamp;
+            double totalLatency = 0.0;
+            for (int i = 0; i < phoenixSignals.length; i++) {
+                double latency = phoenixSignals[i].getTimestamp().getLatency();
+                totalLatency += latency;
+                maxSignalLatencyNanos.accumulateAndGet(i, (long) (latency * 1e9), Math::max);
+            }
+            if (phoenixSignals.length > 0) {
+                timestamp -= totalLatency / phoenixSignals.length;
             }
+
+            // Drop the whole sample if the main loop fell behind, so the buffers stay aligned
+            if (isAnyQueueFull()) {
+                droppedSamples.lazySet(droppedSamples.get() + 1);
+                continue;
+            }
+
+            // Add new samples to buffers
+            for (int i = 0; i < phoenixSignals.length; i++) {
+                phoenixQueues.get(i).offer(phoenixSignals[i].getValueAsDouble());
+            }
+            for (int i = 0; i < genericSignals.size(); i++) {
+                genericQueues.get(i).offer(genericSignals.get(i).getAsDouble());
+            }
+            for (int i = 0; i < timestampQueues.size(); i++) {
+                timestampQueues.get(i).offer(getSampleTimestamp(i, receiveTimestamp, timestamp));
+            }
+
+            // Publish the complete sample
+            publishedSamples.lazySet(publishedSamples.get() + 1);
+            maxPublishNanos.accumulateAndGet(System.nanoTime() - publishStart, Math::max);
+
+            for (int i = 0; i < sampleListeners.size(); i++) {
+                sampleListeners.get(i).onSample(timestamp);
+            }
+        }
+    }
+
+    /**
+     * Returns the FPGA timestamp of the sample for a timestamp buffer, from its source signals'
+     * hardware timestamps if enabled and available.
+     */
+    private double getSampleTimestamp(
+            int queueIndex, double receiveTimestamp, double fallbackTimestamp) {
+        BaseStatusSignal[] sources = timestampSources.get(queueIndex);
+        if (!USE_HARDWARE_TIMESTAMPS || sources.length == 0) return fallbackTimestamp;
+
+        // Average the best valid timestamp of every source, all from the same clock
+        double totalTime = 0.0;
+        int validCount = 0;
+        TimestampSource clockSource = null;
+        for (BaseStatusSignal signal : sources) {
+            Timestamp signalTimestamp = signal.getTimestamp();
+            if (!signalTimestamp.isValid()) continue;
+            if (clockSource != null && signalTimestamp.getSource() != clockSource) continue;
+            clockSource = signalTimestamp.getSource();
+            totalTime += signalTimestamp.getTime();
+            validCount++;
+        }
+        if (validCount == 0) return fallbackTimestamp;
+
+        // A different clock has a different offset, estimate it from scratch
+        ClockOffsetEstimator clock = timestampClocks.get(queueIndex);
+        if (timestampClockSources.get(queueIndex) != clockSource) {
+            timestampClockSources.set(queueIndex, clockSource);
+            clock.reset();
+        }
+        return clock.update(totalTime / validCount, receiveTimestamp);
+    }
+
+    private boolean isAnyQueueFull() {
+        for (int i = 0; i < allQueues.size(); i++) {
+            if (allQueues.get(i).size() >= allQueues.get(i).capacity()) return true;
         }
+        return false;
     }
 }
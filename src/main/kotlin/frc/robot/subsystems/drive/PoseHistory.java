@@ -0,0 +1,145 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.lib.math.PoseMath;
+
+/**
+ * Fixed-capacity history of timestamped robot poses, stored in primitive circular arrays.
+ *
+ * <p>Samples must be added in increasing timestamp order, which is how odometry produces them.
+ * Queries binary search the history in O(log n) and interpolate along the twist between the two
+ * surrounding samples, like {@link Pose2d#interpolate}. {@link #sample(double, double[])} does not
+ * allocate. Not thread safe, use it from the thread that fills it.
+ */
+public class PoseHistory {
+    /** Index of the x coordinate in the array filled by {@link #sample(double, double[])}. */
+    public static final int X = 0;
+    /** Index of the y coordinate in the array filled by {@link #sample(double, double[])}. */
+    public static final int Y = 1;
+    /** Index of the heading in radians in the array filled by {@link #sample(double, double[])}. */
+    public static final int THETA = 2;
+
+    private final double[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] thetas;
+
+    // Physical index of the oldest sample
+    private int start = 0;
+    private int size = 0;
+
+    public PoseHistory(int capacity) {
+        timestamps = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        thetas = new double[capacity];
+    }
+
+    /** Adds a sample, overwriting the oldest one when full. Out of order samples are ignored. */
+    public void addSample(double timestamp, double x, double y, double theta) {
+        if (size > 0 && timestamp <= getNewestTimestamp()) return;
+        int index;
+        if (size < timestamps.length) {
+            index = physicalIndex(size);
+            size++;
+        } else {
+            index = start;
+            start = (start + 1) % timestamps.length;
+        }
+        timestamps[index] = timestamp;
+        xs[index] = x;
+        ys[index] = y;
+        thetas[index] = theta;
+    }
+
+    /** Adds a sample, overwriting the oldest one when full. */
+    public void addSample(double timestamp, Pose2d pose) {
+        addSample(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+    }
+
+    /** Removes every sample at least {@code age} seconds older than the given timestamp. */
+    public void removeSamplesOlderThan(double timestamp, double age) {
+        while (size > 0 && timestamp - timestamps[start] >= age) {
+            start = (start + 1) % timestamps.length;
+            size--;
+        }
+    }
+
+    /** Removes every sample, for example after the pose was reset. */
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Returns the timestamp of the oldest sample, or NaN if empty. */
+    public double getOldestTimestamp() {
+        return size == 0 ? Double.NaN : timestamps[start];
+    }
+
+    /** Returns the timestamp of the newest sample, or NaN if empty. */
+    public double getNewestTimestamp() {
+        return size == 0 ? Double.NaN : timestamps[physicalIndex(size - 1)];
+    }
+
+    /**
+     * Writes the interpolated pose at the given timestamp into {@code out} as x, y and heading in
+     * radians, see {@link #X}, {@link #Y} and {@link #THETA}. Timestamps outside of the history are
+     * clamped to the oldest or newest sample.
+     *
+     * @return Whether a pose was written, false if the history is empty.
+     */
+    public boolean sample(double timestamp, double[] out) {
+        if (size == 0) return false;
+
+        // Find the first sample at or after the timestamp
+        int low = 0;
+        int high = size - 1;
+        if (timestamp <= timestamps[start]) {
+            high = 0;
+        } else if (timestamp >= timestamps[physicalIndex(size - 1)]) {
+            low = size - 1;
+        } else {
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (timestamps[physicalIndex(middle)] < timestamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+        }
+
+        int after = physicalIndex(low);
+        if (low == 0 || timestamps[after] <= timestamp) {
+            out[X] = xs[after];
+            out[Y] = ys[after];
+            out[THETA] = thetas[after];
+            return true;
+        }
+
+        int before = physicalIndex(low - 1);
+        double t = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        PoseMath.interpolate(
+                xs[before],
+                ys[before],
+                thetas[before],
+                xs[after],
+                ys[after],
+                thetas[after],
+                t,
+                out);
+        return true;
+    }
+
+    private int physicalIndex(int logicalIndex) {
+        return (start + logicalIndex) % timestamps.length;
+    }
+}
@@ -0,0 +1,481 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathSharedStore;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.lib.math.PoseMath;
+import java.util.Optional;
+
+/**
+ * Swerve pose estimator with the API and math of WPILib's {@link
+ * edu.wpi.first.math.estimator.SwerveDrivePoseEstimator}, keeping its odometry history and vision
+ * corrections in primitive circular buffers instead of boxed tree maps.
+ *
+ * <p>Like WPILib, a vision measurement is fused by recording a correction at its timestamp, which
+ * later odometry is compensated with, and every later correction is discarded. Searching both
+ * buffers is O(log n), and odometry and vision updates do not allocate apart from the {@link
+ * Pose2d} returned by the WPILib-style methods.
+ *
+ * <p>Measurements added with {@link #queueVisionMeasurement} are applied sorted by timestamp in one
+ * pass by {@link #applyQueuedVisionMeasurements()}, so a late frame from one camera does not
+ * discard the corrections of the other cameras' newer frames in the same cycle.
+ */
+public class SwervePoseEstimator {
+    private static final double BUFFER_DURATION = 1.5;
+    private static final double MAX_ODOMETRY_FREQUENCY = 500.0;
+    private static final int VISION_UPDATE_CAPACITY = 256;
+    private static final int VISION_QUEUE_CAPACITY = 64;
+
+    private final int moduleCount;
+    // Maps the module displacements [x0, y0, x1, y1, ...] to the robot's twist, row major
+    private final double[] forwardKinematics;
+    private final double[] q = new double[3];
+    private final double[] visionK = new double[3];
+    private final double[] visionStdDevs = new double[3];
+
+    // Odometry, the heading is the gyro angle plus the offset
+    private double odometryX = 0.0;
+    private double odometryY = 0.0;
+    private double odometryTheta = 0.0;
+    private double gyroOffset = 0.0;
+    private final double[] previousDistances;
+    private final PoseHistory odometryHistory =
+            new PoseHistory((int) Math.ceil(BUFFER_DURATION * MAX_ODOMETRY_FREQUENCY));
+
+    // Vision corrections sorted by timestamp, each the corrected pose and the odometry pose then
+    private final double[] updateTimestamps = new double[VISION_UPDATE_CAPACITY];
+    private final double[] updateVisionPoses = new double[VISION_UPDATE_CAPACITY * 3];
+    private final double[] updateOdometryPoses = new double[VISION_UPDATE_CAPACITY * 3];
+    private int updateStart = 0;
+    private int updateCount = 0;
+
+    // Vision measurements waiting to be applied together
+    private final double[] queuedTimestamps = new double[VISION_QUEUE_CAPACITY];
+    private final double[] queuedPoses = new double[VISION_QUEUE_CAPACITY * 3];
+    private final double[] queuedStdDevs = new double[VISION_QUEUE_CAPACITY * 3];
+    private final int[] queuedOrder = new int[VISION_QUEUE_CAPACITY];
+    private int queuedCount = 0;
+
+    private double estimateX = 0.0;
+    private double estimateY = 0.0;
+    private double estimateTheta = 0.0;
+    private Pose2d estimate = null; // Created lazily from the primitives
+
+    private final double[] odometrySample = new double[3];
+    private final double[] visionSample = new double[3];
+    private final double[] scratch = new double[3];
+
+    /**
+     * Constructs a pose estimator with default standard deviations for the model and vision
+     * measurements: 0.1 meters and 0.1 radians for the state, 0.9 meters and 0.9 radians for
+     * vision.
+     */
+    public SwervePoseEstimator(
+            SwerveDriveKinematics kinematics,
+            Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions,
+            Pose2d initialPoseMeters) {
+        this(
+                kinematics,
+                gyroAngle,
+                modulePositions,
+                initialPoseMeters,
+                VecBuilder.fill(0.1, 0.1, 0.1),
+                VecBuilder.fill(0.9, 0.9, 0.9));
+    }
+
+    /**
+     * Constructs a pose estimator.
+     *
+     * @param stateStdDevs Standard deviations of the pose estimate (x in meters, y in meters, and
+     *     heading in radians). Increase these numbers to trust your state estimate less.
+     * @param visionMeasurementStdDevs Standard deviations of the vision pose measurement (x in
+     *     meters, y in meters, and heading in radians). Increase these numbers to trust the vision
+     *     pose measurement less.
+     */
+    public SwervePoseEstimator(
+            SwerveDriveKinematics kinematics,
+            Rotation2d gyroAngle,
+            SwerveModulePosition[] modulePositions,
+            Pose2d initialPoseMeters,
+            Matrix<N3, N1> stateStdDevs,
+            Matrix<N3, N1> visionMeasurementStdDevs) {
+        moduleCount = modulePositions.length;
+        previousDistances = new double[moduleCount];
+
+        // The kinematics are linear, so each column is the twist of a unit displacement
+        forwardKinematics = new double[3 * 2 * moduleCount];
+        SwerveModulePosition[] unitDeltas = new SwerveModulePosition[moduleCount];
+        for (int column = 0; column < 2 * moduleCount; column++) {
+            for (int i = 0; i < moduleCount; i++) {
+                Rotation2d angle = column % 2 == 0 ? Rotation2d.kZero : Rotation2d.kCCW_90deg;
+                unitDeltas[i] =
+                        i == column / 2
+                                ? new SwerveModulePosition(1.0, angle)
+                                : new SwerveModulePosition();
+            }
+            Twist2d twist = kinematics.toTwist2d(unitDeltas);
+            forwardKinematics[column] = twist.dx;
+            forwardKinematics[2 * moduleCount + column] = twist.dy;
+            forwardKinematics[4 * moduleCount + column] = twist.dtheta;
+        }
+
+        for (int i = 0; i < 3; i++) {
+            q[i] = stateStdDevs.get(i, 0) * stateStdDevs.get(i, 0);
+        }
+        setVisionMeasurementStdDevs(visionMeasurementStdDevs);
+        resetPosition(gyroAngle, modulePositions, initialPoseMeters);
+    }
+
+    /**
+     * Sets the pose estimator's trust of global measurements. This might be used to change trust
+     * in vision measurements after the autonomous period, or to change trust as distance to a
+     * vision target increases.
+     */
+    public void setVisionMeasurementStdDevs(Matrix<N3, N1> visionMeasurementStdDevs) {
+        setVisionMeasurementStdDevs(
+                visionMeasurementStdDevs.get(0, 0),
+                visionMeasurementStdDevs.get(1, 0),
+                visionMeasurementStdDevs.get(2, 0));
+    }
+
+    private void setVisionMeasurementStdDevs(double xStdDev, double yStdDev, double thetaStdDev) {
+        if (visionStdDevs[0] == xStdDev
+                && visionStdDevs[1] == yStdDev
+                && visionStdDevs[2] == thetaStdDev) {
+            return;
+        }
+        visionStdDevs[0] = xStdDev;
+        visionStdDevs[1] = yStdDev;
+        visionStdDevs[2] = thetaStdDev;
+
+        // Closed form Kalman gain for a continuous Kalman filter with A = 0 and C = I
+        for (int row = 0; row < 3; row++) {
+            double r = visionStdDevs[row] * visionStdDevs[row];
+            visionK[row] = q[row] == 0.0 ? 0.0 : q[row] / (q[row] + Math.sqrt(q[row] * r));
+        }
+    }
+
+    /** Resets the robot's position on the field. The gyroscope angle does not need to be reset. */
+    public void resetPosition(
+            Rotation2d gyroAngle, SwerveModulePosition[] modulePositions, Pose2d poseMeters) {
+        odometryX = poseMeters.getX();
+        odometryY = poseMeters.getY();
+        odometryTheta = poseMeters.getRotation().getRadians();
+        gyroOffset = MathUtil.angleModulus(odometryTheta - gyroAngle.getRadians());
+        for (int i = 0; i < moduleCount; i++) {
+            previousDistances[i] = modulePositions[i].distanceMeters;
+        }
+        clearHistory();
+    }
+
+    /** Resets the robot's pose, keeping the current gyro angle and module positions. */
+    public void resetPose(Pose2d poseMeters) {
+        double theta = poseMeters.getRotation().getRadians();
+        gyroOffset = MathUtil.angleModulus(gyroOffset + theta - odometryTheta);
+        odometryX = poseMeters.getX();
+        odometryY = poseMeters.getY();
+        odometryTheta = theta;
+        clearHistory();
+    }
+
+    private void clearHistory() {
+        odometryHistory.clear();
+        updateStart = 0;
+        updateCount = 0;
+        queuedCount = 0;
+        setEstimate(odometryX, odometryY, odometryTheta);
+    }
+
+    /** Gets the estimated robot pose. */
+    public Pose2d getEstimatedPosition() {
+        if (estimate == null) {
+            estimate = new Pose2d(estimateX, estimateY, Rotation2d.fromRadians(estimateTheta));
+        }
+        return estimate;
+    }
+
+    /** Writes the estimated robot pose into {@code out} as x, y and heading, without allocating. */
+    public void getEstimatedPosition(double[] out) {
+        out[PoseMath.X] = estimateX;
+        out[PoseMath.Y] = estimateY;
+        out[PoseMath.THETA] = estimateTheta;
+    }
+
+    /** Returns the pose at the given timestamp, or empty if no odometry was added yet. */
+    public Optional<Pose2d> sampleAt(double timestampSeconds) {
+        double[] sample = new double[3];
+        if (!sampleAt(timestampSeconds, sample)) return Optional.empty();
+        return Optional.of(
+                new Pose2d(
+                        sample[PoseMath.X],
+                        sample[PoseMath.Y],
+                        Rotation2d.fromRadians(sample[PoseMath.THETA])));
+    }
+
+    /**
+     * Writes the pose at the given timestamp into {@code out} as x, y and heading, without
+     * allocating. Timestamps outside of the odometry history are clamped.
+     *
+     * @return Whether a pose was written, false if no odometry was added yet.
+     */
+    public boolean sampleAt(double timestampSeconds, double[] out) {
+        if (!odometryHistory.sample(timestampSeconds, out)) return false;
+        double timestamp =
+                MathUtil.clamp(
+                        timestampSeconds,
+                        odometryHistory.getOldestTimestamp(),
+                        odometryHistory.getNewestTimestamp());
+        int update = floorUpdate(timestamp);
+        if (update >= 0) {
+            compensate(update, out[PoseMath.X], out[PoseMath.Y], out[PoseMath.THETA], out);
+        }
+        return true;
+    }
+
+    /**
+     * Updates the pose estimator with wheel encoder and gyro information, using the current time.
+     */
+    public Pose2d update(Rotation2d gyroAngle, SwerveModulePosition[] wheelPositions) {
+        return updateWithTime(MathSharedStore.getTimestamp(), gyroAngle, wheelPositions);
+    }
+
+    /** Updates the pose estimator with wheel encoder and gyro information. */
+    public Pose2d updateWithTime(
+            double currentTimeSeconds,
+            Rotation2d gyroAngle,
+            SwerveModulePosition[] wheelPositions) {
+        addOdometrySample(currentTimeSeconds, gyroAngle.getRadians(), wheelPositions);
+        return getEstimatedPosition();
+    }
+
+    /**
+     * Updates the pose estimator with wheel encoder and gyro information, without allocating. Read
+     * the result with {@link #getEstimatedPosition(double[])}.
+     */
+    public void addOdometrySample(
+            double timestampSeconds, double gyroAngleRad, SwerveModulePosition[] wheelPositions) {
+        // Integrate the twist of the wheel deltas, with the heading change from the gyro
+        double twistX = 0.0;
+        double twistY = 0.0;
+        int columns = 2 * moduleCount;
+        for (int i = 0; i < moduleCount; i++) {
+            SwerveModulePosition position = wheelPositions[i];
+            double delta = position.distanceMeters - previousDistances[i];
+            double deltaX = delta * position.angle.getCos();
+            double deltaY = delta * position.angle.getSin();
+            twistX += forwardKinematics[2 * i] * deltaX + forwardKinematics[2 * i + 1] * deltaY;
+            twistY +=
+                    forwardKinematics[columns + 2 * i] * deltaX
+                            + forwardKinematics[columns + 2 * i + 1] * deltaY;
+            previousDistances[i] = position.distanceMeters;
+        }
+        double angle = MathUtil.angleModulus(gyroAngleRad + gyroOffset);
+        double dtheta = MathUtil.angleModulus(angle - odometryTheta);
+        PoseMath.exp(odometryX, odometryY, odometryTheta, twistX, twistY, dtheta, scratch);
+        odometryX = scratch[PoseMath.X];
+        odometryY = scratch[PoseMath.Y];
+        odometryTheta = angle;
+
+        odometryHistory.removeSamplesOlderThan(timestampSeconds, BUFFER_DURATION);
+        odometryHistory.addSample(timestampSeconds, odometryX, odometryY, odometryTheta);
+
+        if (updateCount == 0) {
+            setEstimate(odometryX, odometryY, odometryTheta);
+        } else {
+            compensate(updateCount - 1, odometryX, odometryY, odometryTheta, scratch);
+            setEstimate(scratch[PoseMath.X], scratch[PoseMath.Y], scratch[PoseMath.THETA]);
+        }
+    }
+
+    /**
+     * Adds a vision measurement to the Kalman Filter. This will correct the odometry pose estimate
+     * while still accounting for measurement noise.
+     *
+     * @param visionRobotPoseMeters The pose of the robot as measured by the vision camera.
+     * @param timestampSeconds The timestamp of the vision measurement in seconds, in the same
+     *     epoch as the odometry timestamps.
+     */
+    public void addVisionMeasurement(Pose2d visionRobotPoseMeters, double timestampSeconds) {
+        addVisionMeasurement(
+                visionRobotPoseMeters.getX(),
+                visionRobotPoseMeters.getY(),
+                visionRobotPoseMeters.getRotation().getRadians(),
+                timestampSeconds);
+    }
+
+    /**
+     * Adds a vision measurement to the Kalman Filter, with the given standard deviations, which
+     * stay in effect for later measurements.
+     */
+    public void addVisionMeasurement(
+            Pose2d visionRobotPoseMeters,
+            double timestampSeconds,
+            Matrix<N3, N1> visionMeasurementStdDevs) {
+        setVisionMeasurementStdDevs(visionMeasurementStdDevs);
+        addVisionMeasurement(visionRobotPoseMeters, timestampSeconds);
+    }
+
+    /**
+     * Queues a vision measurement for {@link #applyQueuedVisionMeasurements()}. If the queue is
+     * full, the queued measurements are applied first.
+     */
+    public void queueVisionMeasurement(
+            Pose2d visionRobotPoseMeters,
+            double timestampSeconds,
+            Matrix<N3, N1> visionMeasurementStdDevs) {
+        if (queuedCount == VISION_QUEUE_CAPACITY) applyQueuedVisionMeasurements();
+        int index = queuedCount++;
+        queuedTimestamps[index] = timestampSeconds;
+        queuedPoses[3 * index] = visionRobotPoseMeters.getX();
+        queuedPoses[3 * index + 1] = visionRobotPoseMeters.getY();
+        queuedPoses[3 * index + 2] = visionRobotPoseMeters.getRotation().getRadians();
+        for (int i = 0; i < 3; i++) {
+            queuedStdDevs[3 * index + i] = visionMeasurementStdDevs.get(i, 0);
+        }
+    }
+
+    /** Applies every queued vision measurement from oldest to newest in a single pass. */
+    public void applyQueuedVisionMeasurements() {
+        // Insertion sort, a cycle only has a handful of measurements which are mostly in order
+        for (int i = 0; i < queuedCount; i++) {
+            int index = i;
+            int position = i;
+            while (position > 0
+                    && queuedTimestamps[queuedOrder[position - 1]] > queuedTimestamps[index]) {
+                queuedOrder[position] = queuedOrder[position - 1];
+                position--;
+            }
+            queuedOrder[position] = index;
+        }
+
+        for (int i = 0; i < queuedCount; i++) {
+            int index = queuedOrder[i];
+            setVisionMeasurementStdDevs(
+                    queuedStdDevs[3 * index],
+                    queuedStdDevs[3 * index + 1],
+                    queuedStdDevs[3 * index + 2]);
+            addVisionMeasurement(
+                    queuedPoses[3 * index],
+                    queuedPoses[3 * index + 1],
+                    queuedPoses[3 * index + 2],
+                    queuedTimestamps[index]);
+        }
+        queuedCount = 0;
+    }
+
+    private void addVisionMeasurement(double x, double y, double theta, double timestamp) {
+        // Skip measurements older than the odometry history
+        if (odometryHistory.isEmpty()
+                || odometryHistory.getNewestTimestamp() - BUFFER_DURATION > timestamp) {
+            return;
+        }
+        cleanUpVisionUpdates();
+
+        // Get the odometry pose and the compensated estimate when the measurement was made
+        odometryHistory.sample(timestamp, odometrySample);
+        sampleAt(timestamp, visionSample);
+
+        // Scale the twist from the estimate to the measurement by the Kalman gain
+        PoseMath.log(
+                visionSample[PoseMath.X],
+                visionSample[PoseMath.Y],
+                visionSample[PoseMath.THETA],
+                x,
+                y,
+                theta,
+                scratch);
+        PoseMath.exp(
+                visionSample[PoseMath.X],
+                visionSample[PoseMath.Y],
+                visionSample[PoseMath.THETA],
+                visionK[0] * scratch[PoseMath.X],
+                visionK[1] * scratch[PoseMath.Y],
+                visionK[2] * scratch[PoseMath.THETA],
+                visionSample);
+
+        // Record the correction, replacing it and discarding every later correction
+        updateCount = floorUpdate(Math.nextDown(timestamp)) + 1;
+        if (updateCount == VISION_UPDATE_CAPACITY) {
+            updateStart = (updateStart + 1) % VISION_UPDATE_CAPACITY;
+            updateCount--;
+        }
+        int slot = physicalUpdateIndex(updateCount);
+        updateTimestamps[slot] = timestamp;
+        System.arraycopy(visionSample, 0, updateVisionPoses, 3 * slot, 3);
+        System.arraycopy(odometrySample, 0, updateOdometryPoses, 3 * slot, 3);
+        updateCount++;
+
+        // The new correction is the latest, apply it to the current odometry
+        compensate(updateCount - 1, odometryX, odometryY, odometryTheta, scratch);
+        setEstimate(scratch[PoseMath.X], scratch[PoseMath.Y], scratch[PoseMath.THETA]);
+    }
+
+    /** Removes the corrections older than the one in effect at the oldest odometry sample. */
+    private void cleanUpVisionUpdates() {
+        if (odometryHistory.isEmpty() || updateCount == 0) return;
+        int newestNeeded = floorUpdate(odometryHistory.getOldestTimestamp());
+        if (newestNeeded <= 0) return;
+        updateStart = physicalUpdateIndex(newestNeeded);
+        updateCount -= newestNeeded;
+    }
+
+    /** Returns the logical index of the newest correction at or before the timestamp, or -1. */
+    private int floorUpdate(double timestamp) {
+        int low = 0;
+        int high = updateCount - 1;
+        int floor = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (updateTimestamps[physicalUpdateIndex(middle)] <= timestamp) {
+                floor = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return floor;
+    }
+
+    /** Applies the correction with the given logical index to an odometry pose. */
+    private void compensate(int update, double x, double y, double theta, double[] out) {
+        int slot = 3 * physicalUpdateIndex(update);
+        PoseMath.relativeTo(
+                x,
+                y,
+                theta,
+                updateOdometryPoses[slot],
+                updateOdometryPoses[slot + 1],
+                updateOdometryPoses[slot + 2],
+                out);
+        PoseMath.transformBy(
+                updateVisionPoses[slot],
+                updateVisionPoses[slot + 1],
+                updateVisionPoses[slot + 2],
+                out[PoseMath.X],
+                out[PoseMath.Y],
+                out[PoseMath.THETA],
+                out);
+    }
+
+    private int physicalUpdateIndex(int logicalIndex) {
+        return (updateStart + logicalIndex) % VISION_UPDATE_CAPACITY;
+    }
+
+    private void setEstimate(double x, double y, double theta) {
+        if (x != estimateX || y != estimateY || theta != estimateTheta) {
+            estimateX = x;
+            estimateY = y;
+            estimateTheta = theta;
+            estimate = null;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.subsystems.drive.ModuleIOs.ModuleIO;
+import frc.robot.subsystems.drive.gyroIOs.GyroIO;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the pose estimator on the odometry thread, updating it with every sample as soon as it is
+ * published instead of replaying the samples once per robot loop.
+ *
+ * <p>The latest estimate is published as an immutable {@link Snapshot} in a volatile field, so
+ * readers on any thread never lock. Vision measurements and pose resets go through concurrent
+ * inboxes and are applied on the odometry thread with the next sample.
+ *
+ * <p>The estimate depends on thread timing, so it is not reproduced by log replay.
+ */
+public class ThreadedPoseEstimator implements PhoenixOdometryThread.SampleListener {
+    /** Estimated pose and robot relative speeds at the time of an odometry sample. */
+    public record Snapshot(double timestamp, Pose2d pose, ChassisSpeeds robotRelativeSpeeds) {}
+
+    private record VisionMeasurement(Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs) {}
+
+    private final SwerveDriveKinematics kinematics;
+    private final GyroIO gyroIO;
+    private final ModuleIO[] moduleIOs;
+    private final double wheelRadiusMeters;
+
+    private final Queue<VisionMeasurement> visionInbox = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Pose2d> pendingReset = new AtomicReference<>();
+    private volatile Snapshot snapshot = new Snapshot(0.0, new Pose2d(), new ChassisSpeeds());
+
+    // Only accessed on the odometry thread
+    private final SwervePoseEstimator poseEstimator;
+    private SwerveModulePosition[] lastModulePositions;
+    private Rotation2d rawGyroRotation = new Rotation2d();
+    private double lastTimestamp = Double.NaN;
+
+    public ThreadedPoseEstimator(
+            SwerveDriveKinematics kinematics,
+            GyroIO gyroIO,
+            ModuleIO[] moduleIOs,
+            double wheelRadiusMeters) {
+        this.kinematics = kinematics;
+        this.gyroIO = gyroIO;
+        this.moduleIOs = moduleIOs;
+        this.wheelRadiusMeters = wheelRadiusMeters;
+        lastModulePositions = new SwerveModulePosition[moduleIOs.length];
+        for (int i = 0; i < moduleIOs.length; i++) {
+            lastModulePositions[i] = new SwerveModulePosition();
+        }
+        poseEstimator =
+                new SwervePoseEstimator(
+                        kinematics, rawGyroRotation, lastModulePositions, new Pose2d());
+    }
+
+    /** Returns the latest published estimate. Safe to call from any thread. */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /** Queues a vision measurement for the next sample. Safe to call from any thread. */
+    public void addVisionMeasurement(
+            Pose2d visionRobotPoseMeters,
+            double timestampSeconds,
+            Matrix<N3, N1> visionMeasurementStdDevs) {
+        visionInbox.add(
+                new VisionMeasurement(
+                        visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs));
+    }
+
+    /** Resets the estimate to the given pose with the next sample. Safe to call from any thread. */
+    public void resetPose(Pose2d pose) {
+        pendingReset.set(pose);
+    }
+
+    @Override
+    public void onSample(double timestamp) {
+        // Read wheel positions and deltas from each module
+        SwerveModulePosition[] modulePositions = new SwerveModulePosition[moduleIOs.length];
+        SwerveModulePosition[] moduleDeltas = new SwerveModulePosition[moduleIOs.length];
+        for (int i = 0; i < moduleIOs.length; i++) {
+            double drivePositionRad = moduleIOs[i].getLatestOdometryDrivePositionRad();
+            double turnPositionRad = moduleIOs[i].getLatestOdometryTurnPositionRad();
+            if (Double.isNaN(drivePositionRad) || Double.isNaN(turnPositionRad)) return;
+            modulePositions[i] =
+                    new SwerveModulePosition(
+                            drivePositionRad * wheelRadiusMeters,
+                            Rotation2d.fromRadians(turnPositionRad));
+            moduleDeltas[i] =
+                    new SwerveModulePosition(
+                            modulePositions[i].distanceMeters
+                                    - lastModulePositions[i].distanceMeters,
+                            modulePositions[i].angle);
+        }
+        lastModulePositions = modulePositions;
+
+        // Update gyro angle, using the kinematics as fallback while the gyro is disconnected
+        Twist2d twist = kinematics.toTwist2d(moduleDeltas);
+        double yawRad = gyroIO.getLatestOdometryYawRad();
+        rawGyroRotation =
+                Double.isNaN(yawRad)
+                        ? rawGyroRotation.plus(new Rotation2d(twist.dtheta))
+                        : Rotation2d.fromRadians(yawRad);
+
+        // The first sample and resets only re-anchor the estimate
+        Pose2d reset = pendingReset.getAndSet(null);
+        if (Double.isNaN(lastTimestamp) || reset != null) {
+            poseEstimator.resetPosition(
+                    rawGyroRotation, modulePositions, reset != null ? reset : snapshot.pose());
+            lastTimestamp = timestamp;
+            snapshot =
+                    new Snapshot(
+                            timestamp, poseEstimator.getEstimatedPosition(), new ChassisSpeeds());
+            return;
+        }
+
+        poseEstimator.updateWithTime(timestamp, rawGyroRotation, modulePositions);
+        VisionMeasurement measurement;
+        while ((measurement = visionInbox.poll()) != null) {
+            poseEstimator.addVisionMeasurement(
+                    measurement.pose(), measurement.timestamp(), measurement.stdDevs());
+        }
+
+        double dt = timestamp - lastTimestamp;
+        lastTimestamp = timestamp;
+        ChassisSpeeds speeds =
+                dt > 0.0
+                        ? new ChassisSpeeds(twist.dx / dt, twist.dy / dt, twist.dtheta / dt)
+                        : snapshot.robotRelativeSpeeds();
+        snapshot = new Snapshot(timestamp, poseEstimator.getEstimatedPosition(), speeds);
+    }
+}
@@ -0,0 +1,121 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import java.util.Arrays;
+
+/**
+ * Detects slipping or lifted wheels in each odometry sample and replaces their deltas with the
+ * motion of the other wheels.
+ *
+ * <p>With the rotation measured by the gyro removed, every wheel of a rigid chassis moves by the
+ * same translation. A wheel whose translation differs from the mean of the others by more than
+ * {@link #SLIP_VELOCITY_THRESHOLD} is rejected, at most {@link #MAX_REJECTED_MODULES} per sample,
+ * worst first. A rejected wheel's delta becomes the rigid body motion of the remaining wheels,
+ * projected onto its own angle. Each update is O(n) and does not allocate.
+ */
+public class WheelSlipDetector {
+    // Disagreement between a wheel and the others above which the wheel is slipping, in m/s
+    private static final double SLIP_VELOCITY_THRESHOLD = 0.5;
+    private static final int MAX_REJECTED_MODULES = 2;
+
+    private final int moduleCount;
+    private final double[] moduleXs;
+    private final double[] moduleYs;
+    private final double[] translationXs;
+    private final double[] translationYs;
+    private final boolean[] rejected;
+    private long slipCount = 0;
+
+    public WheelSlipDetector(Translation2d[] moduleTranslations) {
+        moduleCount = moduleTranslations.length;
+        moduleXs = new double[moduleCount];
+        moduleYs = new double[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleXs[i] = moduleTranslations[i].getX();
+            moduleYs[i] = moduleTranslations[i].getY();
+        }
+        translationXs = new double[moduleCount];
+        translationYs = new double[moduleCount];
+        rejected = new boolean[moduleCount];
+    }
+
+    /**
+     * Checks one odometry sample, and corrects the deltas of slipping wheels in place.
+     *
+     * @param deltas The distance each wheel moved since the last sample, and its current angle.
+     * @param dthetaRad The rotation of the robot since the last sample, measured by the gyro.
+     * @param dtSeconds The time since the last sample.
+     * @return The number of wheels rejected in this sample, always 0 if no time passed.
+     */
+    public int update(SwerveModulePosition[] deltas, double dthetaRad, double dtSeconds) {
+        if (dtSeconds <= 0.0) {
+            Arrays.fill(rejected, false);
+            return 0;
+        }
+
+        // Remove the rotation, leaving the translation of the chassis seen by each wheel
+        double sumX = 0.0;
+        double sumY = 0.0;
+        for (int i = 0; i < moduleCount; i++) {
+            SwerveModulePosition delta = deltas[i];
+            translationXs[i] =
+                    delta.distanceMeters * delta.angle.getCos() + dthetaRad * moduleYs[i];
+            translationYs[i] =
+                    delta.distanceMeters * delta.angle.getSin() - dthetaRad * moduleXs[i];
+            sumX += translationXs[i];
+            sumY += translationYs[i];
+            rejected[i] = false;
+        }
+
+        // Reject the wheel disagreeing most with the mean of the others, while it is over threshold
+        double threshold = SLIP_VELOCITY_THRESHOLD * dtSeconds;
+        int acceptedCount = moduleCount;
+        int rejectedCount = 0;
+        while (rejectedCount < MAX_REJECTED_MODULES && acceptedCount > 2) {
+            int worst = -1;
+            double worstError = threshold;
+            for (int i = 0; i < moduleCount; i++) {
+                if (rejected[i]) continue;
+                double othersX = (sumX - translationXs[i]) / (acceptedCount - 1);
+                double othersY = (sumY - translationYs[i]) / (acceptedCount - 1);
+                double error = Math.hypot(translationXs[i] - othersX, translationYs[i] - othersY);
+                if (error > worstError) {
+                    worst = i;
+                    worstError = error;
+                }
+            }
+            if (worst < 0) break;
+
+            rejected[worst] = true;
+            sumX -= translationXs[worst];
+            sumY -= translationYs[worst];
+            acceptedCount--;
+            rejectedCount++;
+        }
+        if (rejectedCount == 0) return 0;
+
+        // Replace the rejected deltas with the rigid body motion of the accepted wheels
+        double chassisX = sumX / acceptedCount;
+        double chassisY = sumY / acceptedCount;
+        for (int i = 0; i < moduleCount; i++) {
+            if (!rejected[i]) continue;
+            SwerveModulePosition delta = deltas[i];
+            double wheelX = chassisX - dthetaRad * moduleYs[i];
+            double wheelY = chassisY + dthetaRad * moduleXs[i];
+            delta.distanceMeters = wheelX * delta.angle.getCos() + wheelY * delta.angle.getSin();
+        }
+        slipCount += rejectedCount;
+        return rejectedCount;
+    }
+
+    /** Returns whether the wheel was rejected in the last sample. */
+    public boolean isSlipping(int moduleIndex) {
+        return rejected[moduleIndex];
+    }
+
+    /** Returns the total number of rejected wheel samples. */
+    public long getSlipCount() {
+        return slipCount;
+    }
+}
@@ -23,11 +23,21 @@ public interface GyroIO {
         public boolean connected = false;
         public Rotation2d yawPosition = new Rotation2d();
         public double yawVelocityRadPerSec = 0.0;
+        public double accelerationXGs = 0.0;
+        public double accelerationYGs = 0.0;
         public double[] odometryYawTimestamps = new double[] {};
-        public Rotation2d[] odometryYawPositions = new Rotation2d[] {};
+        public double[] odometryYawPositionsRad = new double[] {};
     }
 
     public default void reset(Angle angle) {}
 
     public default void updateInputs(GyroIOInputs inputs) {}
+
+    /**
+     * Returns the newest yaw in radians sampled by the odometry thread, or NaN if this IO does not
+     * sample on it or the gyro is disconnected. Must only be called from the odometry thread.
+     */
+    public default double getLatestOdometryYawRad() {
+        return Double.NaN;
+    }
 }
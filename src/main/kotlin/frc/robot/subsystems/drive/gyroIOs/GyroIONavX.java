@@ -17,15 +17,15 @@ import com.studica.frc.AHRS;
 import com.studica.frc.AHRS.NavXComType;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
+import frc.robot.lib.DoubleRingBuffer;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.drive.PhoenixOdometryThread;
-import java.util.Queue;
 
 /** IO implementation for NavX. */
 public class GyroIONavX implements GyroIO {
     private final AHRS navX = new AHRS(NavXComType.kMXP_SPI, (byte) Drive.ODOMETRY_FREQUENCY);
-    private final Queue<Double> yawPositionQueue;
-    private final Queue<Double> yawTimestampQueue;
+    private final DoubleRingBuffer yawPositionQueue;
+    private final DoubleRingBuffer yawTimestampQueue;
 
     public GyroIONavX() {
         yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
@@ -37,14 +37,19 @@ public class GyroIONavX implements GyroIO {
         inputs.connected = navX.isConnected();
         inputs.yawPosition = Rotation2d.fromDegrees(-navX.getYaw());
         inputs.yawVelocityRadPerSec = Units.degreesToRadians(-navX.getRawGyroZ());
+        inputs.accelerationXGs = navX.getWorldLinearAccelX();
+        inputs.accelerationYGs = navX.getWorldLinearAccelY();
 
-        inputs.odometryYawTimestamps =
-                yawTimestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-        inputs.odometryYawPositions =
-                yawPositionQueue.stream()
-                        .map((Double value) -> Rotation2d.fromDegrees(-value))
-                        .toArray(Rotation2d[]::new);
-        yawTimestampQueue.clear();
-        yawPositionQueue.clear();
+        int sampleCount =
+                PhoenixOdometryThread.getInstance().getLatchedSampleCount(yawTimestampQueue);
+        inputs.odometryYawTimestamps = yawTimestampQueue.drain(sampleCount, null);
+        inputs.odometryYawPositionsRad =
+                yawPositionQueue.drain(sampleCount, (value) -> Units.degreesToRadians(-value));
+    }
+
+    @Override
+    public double getLatestOdometryYawRad() {
+        if (!navX.isConnected()) return Double.NaN;
+        return Units.degreesToRadians(-yawPositionQueue.getLastOffered());
     }
 }
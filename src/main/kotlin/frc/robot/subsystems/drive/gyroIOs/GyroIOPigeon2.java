@@ -14,7 +14,6 @@
 package frc.robot.subsystems.drive.gyroIOs;
 
 import com.ctre.phoenix6.BaseStatusSignal;
-import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.Pigeon2Configuration;
 import com.ctre.phoenix6.hardware.Pigeon2;
@@ -22,10 +21,12 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.LinearAcceleration;
+import frc.robot.lib.DoubleRingBuffer;
+import frc.robot.lib.StatusSignalRegistry;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.drive.PhoenixOdometryThread;
 import frc.robot.subsystems.drive.TunerConstants;
-import java.util.Queue;
 
 /** IO implementation for Pigeon 2. */
 public class GyroIOPigeon2 implements GyroIO {
@@ -34,18 +35,24 @@ public class GyroIOPigeon2 implements GyroIO {
                     TunerConstants.DrivetrainConstants.Pigeon2Id,
                     TunerConstants.DrivetrainConstants.CANBusName);
     private final StatusSignal<Angle> yaw = pigeon.getYaw();
-    private final Queue<Double> yawPositionQueue;
-    private final Queue<Double> yawTimestampQueue;
+    private final DoubleRingBuffer yawPositionQueue;
+    private final DoubleRingBuffer yawTimestampQueue;
     private final StatusSignal<AngularVelocity> yawVelocity = pigeon.getAngularVelocityZWorld();
+    private final StatusSignal<LinearAcceleration> accelerationX = pigeon.getAccelerationX();
+    private final StatusSignal<LinearAcceleration> accelerationY = pigeon.getAccelerationY();
+    private final BaseStatusSignal[] signals =
+            new BaseStatusSignal[] {yaw, yawVelocity, accelerationX, accelerationY};
 
     public GyroIOPigeon2() {
         pigeon.getConfigurator().apply(new Pigeon2Configuration());
         pigeon.getConfigurator().setYaw(0.0);
         yaw.setUpdateFrequency(Drive.ODOMETRY_FREQUENCY);
         yawVelocity.setUpdateFrequency(50.0);
+        BaseStatusSignal.setUpdateFrequencyForAll(100.0, accelerationX, accelerationY);
         pigeon.optimizeBusUtilization();
-        yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
-        yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(pigeon.getYaw());
+        yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue(yaw);
+        yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(yaw);
+        StatusSignalRegistry.register(TunerConstants.DrivetrainConstants.CANBusName, signals);
     }
 
     @Override
@@ -55,15 +62,23 @@ public class GyroIOPigeon2 implements GyroIO {
 
     @Override
     public void updateInputs(GyroIOInputs inputs) {
-        inputs.connected = BaseStatusSignal.refreshAll(yaw, yawVelocity).equals(StatusCode.OK);
+        inputs.connected = BaseStatusSignal.isAllGood(signals);
         inputs.yawPosition = Rotation2d.fromDegrees(yaw.getValueAsDouble());
         inputs.yawVelocityRadPerSec = Units.degreesToRadians(yawVelocity.getValueAsDouble());
+        inputs.accelerationXGs = accelerationX.getValueAsDouble();
+        inputs.accelerationYGs = accelerationY.getValueAsDouble();
 
-        inputs.odometryYawTimestamps =
-                yawTimestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-        inputs.odometryYawPositions =
-                yawPositionQueue.stream().map(Rotation2d::fromDegrees).toArray(Rotation2d[]::new);
-        yawTimestampQueue.clear();
-        yawPositionQueue.clear();
+        int sampleCount =
+                PhoenixOdometryThread.getInstance().getLatchedSampleCount(yawTimestampQueue);
+        inputs.odometryYawTimestamps = yawTimestampQueue.drain(sampleCount, null);
+        inputs.odometryYawPositionsRad =
+                yawPositionQueue.drain(sampleCount, Units::degreesToRadians);
+    }
+
+    @Override
+    public double getLatestOdometryYawRad() {
+        // The odometry thread refreshed the signal right before, so its status is this sample's
+        if (!yaw.getStatus().isOK()) return Double.NaN;
+        return Units.degreesToRadians(yawPositionQueue.getLastOffered());
     }
 }
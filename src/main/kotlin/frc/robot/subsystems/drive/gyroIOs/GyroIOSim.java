@@ -2,8 +2,10 @@ package frc.robot.subsystems.drive.gyroIOs;
 
 import static edu.wpi.first.units.Units.RadiansPerSecond;
 
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import frc.robot.lib.PhoenixUtil;
+import java.util.Arrays;
 import org.ironmaple.simulation.drivesims.GyroSimulation;
 
 public class GyroIOSim implements GyroIO {
@@ -22,6 +24,9 @@ public class GyroIOSim implements GyroIO {
                         gyroSimulation.getMeasuredAngularVelocity().in(RadiansPerSecond));
 
         inputs.odometryYawTimestamps = PhoenixUtil.getSimulationOdometryTimeStamps();
-        inputs.odometryYawPositions = gyroSimulation.getCachedGyroReadings();
+        inputs.odometryYawPositionsRad =
+                Arrays.stream(gyroSimulation.getCachedGyroReadings())
+                        .mapToDouble(Rotation2d::getRadians)
+                        .toArray();
     }
 }
@@ -24,14 +24,16 @@ object Roller : SubsystemBase() {
         UniversalTalonFX(
             MOTOR_PORT,
             momentOfInertia = 0.002.kg2m,
-            config = MOTOR_CONFIG
+            config = MOTOR_CONFIG,
+            optimizeBusUtilization = true
         )
 
     private val auxiliaryMotor =
         UniversalTalonFX(
             AUXILIARY_MOTOR_PORT,
             momentOfInertia = (0.002).kilogramSquareMeters,
-            config = MOTOR_CONFIG
+            config = MOTOR_CONFIG,
+            optimizeBusUtilization = true
         )
 
     private val voltageRequest = VoltageOut(0.0)
@@ -23,7 +23,11 @@ object Flywheel : SubsystemBase(), SysIdable {
     private val mainMotor =
         UniversalTalonFX(MAIN_MOTOR_PORT, config = MOTOR_CONFIG)
     private val auxMotor =
-        UniversalTalonFX(AUX_MOTOR_PORT, config = MOTOR_CONFIG)
+        UniversalTalonFX(
+            AUX_MOTOR_PORT,
+            config = MOTOR_CONFIG,
+            optimizeBusUtilization = true
+        )
     private val velocityTorque = VelocityVoltage(0.0)
     private val voltageOut = VoltageOut(0.0)
     private var velocitySetpoint = 0.rps
@@ -19,7 +19,11 @@ import org.team5987.annotation.LoggedOutput
 object Hopper : SubsystemBase() {
 
     private val motor: UniversalTalonFX =
-        UniversalTalonFX(MOTOR_ID, config = MOTOR_CONFIG)
+        UniversalTalonFX(
+            MOTOR_ID,
+            config = MOTOR_CONFIG,
+            optimizeBusUtilization = true
+        )
 
     private val colorSensor = ColorSensorV3(COLOR_SENSOR_PORT)
     private val voltageRequest = VoltageOut(0.0)
@@ -10,6 +10,8 @@ import edu.wpi.first.wpilibj2.command.Command
 import edu.wpi.first.wpilibj2.command.SubsystemBase
 import edu.wpi.first.wpilibj2.command.button.Trigger
 import frc.robot.lib.extensions.deg
+import frc.robot.lib.extensions.rad
+import frc.robot.lib.math.DoubleHistory
 import frc.robot.lib.sysid.SysIdable
 import frc.robot.lib.universal_motor.UniversalTalonFX
 import org.littletonrobotics.junction.AutoLogOutput
@@ -24,13 +26,33 @@ private val ligament =
     root.append(LoggedMechanismLigament2d("TurretLigament", 0.25, 90.0))
 
 object Turret : SubsystemBase(), SysIdable {
-    private val motor = UniversalTalonFX(MOTOR_ID, config = MOTOR_CONFIG)
+    private val motor =
+        UniversalTalonFX(
+            MOTOR_ID,
+            config = MOTOR_CONFIG,
+            optimizeBusUtilization = true
+        )
     private val positionVoltage = PositionVoltage(0.0)
     @LoggedOutput var angleSetpoint = 0.deg
     private val voltageRequest = VoltageOut(0.0)
     val inputs
         get() = motor.inputs
 
+    // Measured turret angles in radians, by the time they were measured.
+    // Sampled once per loop, a higher-rate sampler could fill it if 20 ms is
+    // too coarse.
+    private val angleHistory = DoubleHistory(ANGLE_HISTORY_CAPACITY)
+
+    /**
+     * Returns the turret angle at [timestamp], interpolated between the
+     * measured angles around it. Falls back to the latest angle before the
+     * first measurement.
+     */
+    fun getAngleAt(timestamp: Double): Angle {
+        val angle = angleHistory.sample(timestamp)
+        return if (angle.isNaN()) inputs.position else angle.rad
+    }
+
     init {
         motor.reset()
     }
@@ -67,6 +89,11 @@ object Turret : SubsystemBase(), SysIdable {
         motor.updateInputs()
         ligament.setAngle(angleSetpoint.`in`(deg))
         Logger.processInputs("Subsystems/$name", motor.inputs)
+        // After processInputs, so replay fills it with the logged inputs
+        angleHistory.addSample(
+            motor.inputs.positionTimestamp,
+            motor.inputs.position.`in`(rad)
+        )
         Logger.recordOutput("Subsystems/$name/isAtSetpoint", isAtSetpoint)
         Logger.recordOutput("Subsystems/$name/Ligament", mechanism)
     }
@@ -14,6 +14,8 @@ import frc.robot.lib.extensions.deg
 import frc.robot.lib.extensions.get
 
 val TOLERANCE = 2.deg
+// Turret angles kept for transforming camera frames captured in the past
+const val ANGLE_HISTORY_CAPACITY = 100
 const val MOTOR_ID = 7
 val GAINS = Gains(kP = 95.0, kD = 12.0, kS = 0.04, kV = 3.0, kA = 0.5)
 val STATOR_CURRENT_LIMIT = 80.amps
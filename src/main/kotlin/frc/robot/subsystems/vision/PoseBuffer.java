@@ -0,0 +1,53 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose3d;
+
+/**
+ * Reusable list of poses for logging. {@link #toArray()} returns an exactly sized array, which is
+ * cached per size, so logging the same number of poses every loop does not allocate.
+ */
+final class PoseBuffer {
+    private static final Pose3d[] EMPTY = new Pose3d[0];
+
+    private Pose3d[] poses = new Pose3d[8];
+    private Pose3d[][] arraysBySize = new Pose3d[9][];
+    private int size = 0;
+
+    void add(Pose3d pose) {
+        if (size == poses.length) {
+            Pose3d[] grown = new Pose3d[poses.length * 2];
+            System.arraycopy(poses, 0, grown, 0, size);
+            poses = grown;
+        }
+        poses[size++] = pose;
+    }
+
+    void clear() {
+        // Drop the references so old poses can be collected
+        for (int i = 0; i < size; i++) {
+            poses[i] = null;
+        }
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Returns the poses in an array that is only valid until the next call. */
+    Pose3d[] toArray() {
+        if (size == 0) return EMPTY;
+        if (size >= arraysBySize.length) {
+            Pose3d[][] grown = new Pose3d[size * 2][];
+            System.arraycopy(arraysBySize, 0, grown, 0, arraysBySize.length);
+            arraysBySize = grown;
+        }
+        Pose3d[] array = arraysBySize[size];
+        if (array == null) {
+            array = new Pose3d[size];
+            arraysBySize[size] = array;
+        }
+        System.arraycopy(poses, 0, array, 0, size);
+        return array;
+    }
+}
@@ -13,29 +13,81 @@
 
 package frc.robot.subsystems.vision;
 
+import static edu.wpi.first.units.Units.Meters;
 import static frc.robot.subsystems.vision.VisionConstants.*;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.ConstantsKt;
+import frc.robot.lib.Mode;
+import frc.robot.lib.NetworkTablesFlusher;
+import frc.robot.subsystems.drive.PoseHistory;
+import frc.robot.subsystems.vision.VisionIO.PoseObservation;
 import frc.robot.subsystems.vision.VisionIO.PoseObservationType;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.littletonrobotics.junction.Logger;
 
 public class Vision extends SubsystemBase {
+    private static final int MAX_IO_THREADS = 3;
+    private static final Rejection[] REJECTIONS = Rejection.values();
+
     private final VisionConsumer consumer;
     private final VisionIO[] io;
     private final VisionIOInputsAutoLogged[] inputs;
     private final Alert[] disconnectedAlerts;
 
+    // Updates the cameras other than the first in parallel, null when updating sequentially
+    private final ExecutorService ioExecutor;
+    private final Runnable[] ioUpdates;
+    private final Future<?>[] ioFutures;
+
+    // Log keys and pose buffers, created once per camera
+    private final String[] cameraKeys;
+    private final String[] tagPosesKeys;
+    private final String[] robotPosesKeys;
+    private final String[] robotPosesAcceptedKeys;
+    private final String[] robotPosesRejectedKeys;
+    private final PoseBuffer[] tagPoses;
+    private final PoseBuffer[] robotPoses;
+    private final PoseBuffer[] robotPosesAccepted;
+    private final PoseBuffer[] robotPosesRejected;
+    private final String summaryTagPosesKey = LOG_PREFIX + "Summary/TagPoses";
+    private final String summaryRobotPosesKey = LOG_PREFIX + "Summary/RobotPoses";
+    private final String summaryRobotPosesAcceptedKey = LOG_PREFIX + "Summary/RobotPosesAccepted";
+    private final String summaryRobotPosesRejectedKey = LOG_PREFIX + "Summary/RobotPosesRejected";
+    private final PoseBuffer allTagPoses = new PoseBuffer();
+    private final PoseBuffer allRobotPoses = new PoseBuffer();
+    private final PoseBuffer allRobotPosesAccepted = new PoseBuffer();
+    private final PoseBuffer allRobotPosesRejected = new PoseBuffer();
+
+    // Accepted observations of every camera, sent to the consumer sorted by timestamp
+    private PoseObservation[] batchObservations = new PoseObservation[16];
+    private double[] batchLinearStdDevs = new double[16];
+    private double[] batchAngularStdDevs = new double[16];
+    private int[] batchOrder = new int[16];
+    private int batchSize = 0;
+
+    // Gating against the estimated pose and acceptance statistics
+    private final double[] estimateSample = new double[3];
+    private double lastAcceptedTimestamp = Double.NEGATIVE_INFINITY;
+    private long acceptedCount = 0;
+    private final long[] rejectedCounts = new long[REJECTIONS.length];
+    private final String acceptedCountKey = LOG_PREFIX + "Summary/Accepted";
+
     public Vision(VisionConsumer consumer, VisionIO... io) {
         this.consumer = consumer;
         this.io = io;
@@ -54,6 +106,51 @@ public class Vision extends SubsystemBase {
                             "Vision camera " + Integer.toString(i) + " is disconnected.",
                             AlertType.kWarning);
         }
+
+        // Initialize camera IO updates, in parallel unless replaying or an IO shares state
+        ioUpdates = new Runnable[io.length];
+        ioFutures = new Future<?>[io.length];
+        for (int i = 0; i < io.length; i++) {
+            VisionIO cameraIO = io[i];
+            VisionIOInputsAutoLogged cameraInputs = inputs[i];
+            ioUpdates[i] = () -> cameraIO.updateInputs(cameraInputs);
+        }
+        if (io.length > 1
+                && ConstantsKt.getCURRENT_MODE() != Mode.REPLAY
+                && Arrays.stream(io).allMatch(VisionIO::supportsParallelUpdates)) {
+            ioExecutor =
+                    Executors.newFixedThreadPool(
+                            Math.min(io.length - 1, MAX_IO_THREADS),
+                            (runnable) -> {
+                                Thread thread = new Thread(runnable, "VisionIOWorker");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+        } else {
+            ioExecutor = null;
+        }
+
+        // Initialize log keys and pose buffers
+        cameraKeys = new String[io.length];
+        tagPosesKeys = new String[io.length];
+        robotPosesKeys = new String[io.length];
+        robotPosesAcceptedKeys = new String[io.length];
+        robotPosesRejectedKeys = new String[io.length];
+        tagPoses = new PoseBuffer[io.length];
+        robotPoses = new PoseBuffer[io.length];
+        robotPosesAccepted = new PoseBuffer[io.length];
+        robotPosesRejected = new PoseBuffer[io.length];
+        for (int i = 0; i < io.length; i++) {
+            cameraKeys[i] = LOG_PREFIX + "Camera" + Integer.toString(i);
+            tagPosesKeys[i] = cameraKeys[i] + "/TagPoses";
+            robotPosesKeys[i] = cameraKeys[i] + "/RobotPoses";
+            robotPosesAcceptedKeys[i] = cameraKeys[i] + "/RobotPosesAccepted";
+            robotPosesRejectedKeys[i] = cameraKeys[i] + "/RobotPosesRejected";
+            tagPoses[i] = new PoseBuffer();
+            robotPoses[i] = new PoseBuffer();
+            robotPosesAccepted[i] = new PoseBuffer();
+            robotPosesRejected[i] = new PoseBuffer();
+        }
     }
 
     /**
@@ -67,16 +164,21 @@ public class Vision extends SubsystemBase {
 
     @Override
     public void periodic() {
+        updateTagPoseTable();
+        updateInputs();
+        // Send the cameras' orientation updates right away, in one flush
+        NetworkTablesFlusher.flushIfRequested();
+        // Log in camera order, so replay sees the same inputs however the updates interleaved
         for (int i = 0; i < io.length; i++) {
-            io[i].updateInputs(inputs[i]);
-            Logger.processInputs(LOG_PREFIX + "Camera" + Integer.toString(i), inputs[i]);
+            Logger.processInputs(cameraKeys[i], inputs[i]);
         }
 
-        // Initialize logging values
-        List<Pose3d> allTagPoses = new LinkedList<>();
-        List<Pose3d> allRobotPoses = new LinkedList<>();
-        List<Pose3d> allRobotPosesAccepted = new LinkedList<>();
-        List<Pose3d> allRobotPosesRejected = new LinkedList<>();
+        // Reset the logging buffers and the batch
+        allTagPoses.clear();
+        allRobotPoses.clear();
+        allRobotPosesAccepted.clear();
+        allRobotPosesRejected.clear();
+        batchSize = 0;
 
         // Loop over cameras
         for (int cameraIndex = 0; cameraIndex < io.length; cameraIndex++) {
@@ -84,45 +186,46 @@ public class Vision extends SubsystemBase {
             disconnectedAlerts[cameraIndex].set(!inputs[cameraIndex].connected);
 
             // Initialize logging values
-            List<Pose3d> tagPoses = new LinkedList<>();
-            List<Pose3d> robotPoses = new LinkedList<>();
-            List<Pose3d> robotPosesAccepted = new LinkedList<>();
-            List<Pose3d> robotPosesRejected = new LinkedList<>();
+            PoseBuffer tagPoses = this.tagPoses[cameraIndex];
+            PoseBuffer robotPoses = this.robotPoses[cameraIndex];
+            PoseBuffer robotPosesAccepted = this.robotPosesAccepted[cameraIndex];
+            PoseBuffer robotPosesRejected = this.robotPosesRejected[cameraIndex];
+            tagPoses.clear();
+            robotPoses.clear();
+            robotPosesAccepted.clear();
+            robotPosesRejected.clear();
 
             // Add tag poses
             for (int tagId : inputs[cameraIndex].tagIds) {
-                var tagPose = aprilTagLayout.getTagPose(tagId);
-                if (tagPose.isPresent()) {
-                    tagPoses.add(tagPose.get());
+                Pose3d tagPose = getTagPose(tagId);
+                if (tagPose != null) {
+                    tagPoses.add(tagPose);
+                    allTagPoses.add(tagPose);
                 }
             }
 
             // Loop over pose observations
             for (var observation : inputs[cameraIndex].poseObservations) {
                 // Check whether to reject pose
-                boolean rejectPose =
-                        observation.tagCount() == 0 // Must have at least one tag
-                                || (observation.tagCount() == 1
-                                        && observation.ambiguity()
-                                                > maxAmbiguity) // Cannot be high ambiguity
-                                || Math.abs(observation.pose().getZ())
-                                        > maxZError; // Must have realistic Z
-                // coordinate
-
-                // Must be within the field boundaries
-                //                                || observation.pose().getX() < 0.0
-                //                                || observation.pose().getX() >
-                // aprilTagLayout.getFieldLength()
-                //                                || observation.pose().getY() < 0.0
-                //                                || observation.pose().getY() >
-                // aprilTagLayout.getFieldWidth();
+                Rejection rejection = checkObservation(observation);
+                boolean rejectPose = rejection != null;
+                if (rejectPose) {
+                    rejectedCounts[rejection.ordinal()]++;
+                } else {
+                    acceptedCount++;
+                    lastAcceptedTimestamp =
+                            Math.max(lastAcceptedTimestamp, observation.timestamp());
+                }
 
                 // Add pose to log
                 robotPoses.add(observation.pose());
+                allRobotPoses.add(observation.pose());
                 if (rejectPose) {
                     robotPosesRejected.add(observation.pose());
+                    allRobotPosesRejected.add(observation.pose());
                 } else {
                     robotPosesAccepted.add(observation.pose());
+                    allRobotPosesAccepted.add(observation.pose());
                 }
 
                 // Skip if rejected
@@ -144,45 +247,176 @@ public class Vision extends SubsystemBase {
                     angularStdDev *= cameraStdDevFactors[cameraIndex];
                 }
 
-                // Send vision observation
-                consumer.accept(
-                        observation.pose().toPose2d(),
-                        observation.timestamp(),
-                        VecBuilder.fill(linearStdDev, linearStdDev, angularStdDev));
+                // Add to the batch sent once every camera was processed
+                addToBatch(observation, linearStdDev, angularStdDev);
             }
 
             // Log camera datadata
-            Logger.recordOutput(
-                    LOG_PREFIX + "Camera" + Integer.toString(cameraIndex) + "/TagPoses",
-                    tagPoses.toArray(new Pose3d[tagPoses.size()]));
-            Logger.recordOutput(
-                    LOG_PREFIX + "Camera" + Integer.toString(cameraIndex) + "/RobotPoses",
-                    robotPoses.toArray(new Pose3d[robotPoses.size()]));
-            Logger.recordOutput(
-                    LOG_PREFIX + "Camera" + Integer.toString(cameraIndex) + "/RobotPosesAccepted",
-                    robotPosesAccepted.toArray(new Pose3d[robotPosesAccepted.size()]));
-            Logger.recordOutput(
-                    LOG_PREFIX + "Camera" + Integer.toString(cameraIndex) + "/RobotPosesRejected",
-                    robotPosesRejected.toArray(new Pose3d[robotPosesRejected.size()]));
-            allTagPoses.addAll(tagPoses);
-            allRobotPoses.addAll(robotPoses);
-            allRobotPosesAccepted.addAll(robotPosesAccepted);
-            allRobotPosesRejected.addAll(robotPosesRejected);
+            Logger.recordOutput(tagPosesKeys[cameraIndex], tagPoses.toArray());
+            Logger.recordOutput(robotPosesKeys[cameraIndex], robotPoses.toArray());
+            Logger.recordOutput(robotPosesAcceptedKeys[cameraIndex], robotPosesAccepted.toArray());
+            Logger.recordOutput(robotPosesRejectedKeys[cameraIndex], robotPosesRejected.toArray());
+        }
+
+        // Send the observations of every camera, oldest first, and apply them together
+        sortBatch();
+        for (int i = 0; i < batchSize; i++) {
+            int index = batchOrder[i];
+            PoseObservation observation = batchObservations[index];
+            consumer.accept(
+                    observation.pose().toPose2d(),
+                    observation.timestamp(),
+                    VecBuilder.fill(
+                            batchLinearStdDevs[index],
+                            batchLinearStdDevs[index],
+                            batchAngularStdDevs[index]));
+            batchObservations[index] = null;
         }
+        consumer.flushVisionMeasurements();
 
         // Log summary data
-        Logger.recordOutput(
-                LOG_PREFIX + "Summary/TagPoses",
-                allTagPoses.toArray(new Pose3d[allTagPoses.size()]));
-        Logger.recordOutput(
-                LOG_PREFIX + "Summary/RobotPoses",
-                allRobotPoses.toArray(new Pose3d[allRobotPoses.size()]));
-        Logger.recordOutput(
-                LOG_PREFIX + "Summary/RobotPosesAccepted",
-                allRobotPosesAccepted.toArray(new Pose3d[allRobotPosesAccepted.size()]));
-        Logger.recordOutput(
-                LOG_PREFIX + "Summary/RobotPosesRejected",
-                allRobotPosesRejected.toArray(new Pose3d[allRobotPosesRejected.size()]));
+        Logger.recordOutput(summaryTagPosesKey, allTagPoses.toArray());
+        Logger.recordOutput(summaryRobotPosesKey, allRobotPoses.toArray());
+        Logger.recordOutput(summaryRobotPosesAcceptedKey, allRobotPosesAccepted.toArray());
+        Logger.recordOutput(summaryRobotPosesRejectedKey, allRobotPosesRejected.toArray());
+        Logger.recordOutput(acceptedCountKey, acceptedCount);
+        for (Rejection rejection : REJECTIONS) {
+            Logger.recordOutput(rejection.key, rejectedCounts[rejection.ordinal()]);
+        }
+    }
+
+    /**
+     * Returns why the observation must be rejected, or null to accept it. Observations are checked
+     * for plausibility on their own, then gated against the estimated pose at their timestamp. The
+     * estimate includes earlier accepted observations, since raw odometry drifts away from the
+     * field frame the observations are in.
+     */
+    private Rejection checkObservation(PoseObservation observation) {
+        Pose3d pose = observation.pose();
+        if (observation.tagCount() == 0) return Rejection.NO_TAGS;
+        if (observation.tagCount() == 1 && observation.ambiguity() > maxAmbiguity) {
+            return Rejection.AMBIGUITY;
+        }
+
+        // A flat robot, seen from a plausible distance, must solve to a flat pose on the floor
+        if (Math.abs(pose.getZ()) > maxZError) return Rejection.Z_ERROR;
+        Rotation3d rotation = pose.getRotation();
+        if (Math.abs(rotation.getX()) > maxTilt || Math.abs(rotation.getY()) > maxTilt) {
+            return Rejection.TILT;
+        }
+        if (!(observation.averageTagDistance() > 0.0)
+                || observation.averageTagDistance() > maxTagDistance) {
+            return Rejection.TAG_DISTANCE;
+        }
+
+        // Must be within the field boundaries
+        if (pose.getX() < -fieldBorderMargin
+                || pose.getX() > aprilTagLayout.getFieldLength() + fieldBorderMargin
+                || pose.getY() < -fieldBorderMargin
+                || pose.getY() > aprilTagLayout.getFieldWidth() + fieldBorderMargin) {
+            return Rejection.OUT_OF_FIELD;
+        }
+
+        // Must be close to the estimate, unless nothing was accepted for long enough to re-localize
+        if (observation.timestamp() - lastAcceptedTimestamp > gateBypassSeconds
+                || !consumer.samplePoseAt(observation.timestamp(), estimateSample)) {
+            return null;
+        }
+        double translationDelta =
+                Math.hypot(
+                        pose.getX() - estimateSample[PoseHistory.X],
+                        pose.getY() - estimateSample[PoseHistory.Y]);
+        if (translationDelta > MAX_DELTA_BETWEEN_LOCAL_AND_GLOBAL.in(Meters)) {
+            return Rejection.TRANSLATION_GATE;
+        }
+        // MegaTag 2 takes its rotation from the gyro, so only check full solves
+        double rotationDelta =
+                MathUtil.angleModulus(rotation.getZ() - estimateSample[PoseHistory.THETA]);
+        if (observation.type() != PoseObservationType.MEGATAG_2
+                && Math.abs(rotationDelta) > maxRotationDeltaFromEstimate) {
+            return Rejection.ROTATION_GATE;
+        }
+        return null;
+    }
+
+    /** Updates every camera's inputs, returning once all are done. */
+    private void updateInputs() {
+        if (ioExecutor == null) {
+            for (Runnable update : ioUpdates) {
+                update.run();
+            }
+            return;
+        }
+
+        // The main thread updates the first camera while the pool updates the others
+        for (int i = 1; i < ioUpdates.length; i++) {
+            ioFutures[i] = ioExecutor.submit(ioUpdates[i]);
+        }
+        ioUpdates[0].run();
+
+        // Wait for every worker even if interrupted, since the inputs are logged right after
+        boolean interrupted = false;
+        try {
+            for (int i = 1; i < ioFutures.length; i++) {
+                while (true) {
+                    try {
+                        ioFutures[i].get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        throw new RuntimeException(
+                                "Vision camera " + i + " update failed", e.getCause());
+                    }
+                }
+            }
+        } finally {
+            Arrays.fill(ioFutures, null);
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addToBatch(
+            PoseObservation observation, double linearStdDev, double angularStdDev) {
+        if (batchSize == batchObservations.length) {
+            int capacity = batchSize * 2;
+            batchObservations = Arrays.copyOf(batchObservations, capacity);
+            batchLinearStdDevs = Arrays.copyOf(batchLinearStdDevs, capacity);
+            batchAngularStdDevs = Arrays.copyOf(batchAngularStdDevs, capacity);
+            batchOrder = Arrays.copyOf(batchOrder, capacity);
+        }
+        batchObservations[batchSize] = observation;
+        batchLinearStdDevs[batchSize] = linearStdDev;
+        batchAngularStdDevs[batchSize] = angularStdDev;
+        batchSize++;
+    }
+
+    /** Sorts the batch by timestamp, the cameras' observations are each mostly in order. */
+    private void sortBatch() {
+        for (int i = 0; i < batchSize; i++) {
+            double timestamp = batchObservations[i].timestamp();
+            int position = i;
+            while (position > 0
+                    && batchObservations[batchOrder[position - 1]].timestamp() > timestamp) {
+                batchOrder[position] = batchOrder[position - 1];
+                position--;
+            }
+            batchOrder[position] = i;
+        }
+    }
+
+    /** Reasons an observation is rejected, each counted and logged. */
+    private enum Rejection {
+        NO_TAGS,
+        AMBIGUITY,
+        Z_ERROR,
+        TILT,
+        TAG_DISTANCE,
+        OUT_OF_FIELD,
+        TRANSLATION_GATE,
+        ROTATION_GATE;
+
+        private final String key = LOG_PREFIX + "Summary/Rejected/" + name();
     }
 
     @FunctionalInterface
@@ -191,5 +425,18 @@ public class Vision extends SubsystemBase {
                 Pose2d visionRobotPoseMeters,
                 double timestampSeconds,
                 Matrix<N3, N1> visionMeasurementStdDevs);
+
+        /** Called after every measurement of a cycle was accepted. */
+        default void flushVisionMeasurements() {}
+
+        /**
+         * Writes the estimated pose at the timestamp into {@code out} as x, y and heading, for
+         * gating observations.
+         *
+         * @return Whether a pose was written, observations are not gated if false.
+         */
+        default boolean samplePoseAt(double timestampSeconds, double[] out) {
+            return false;
+        }
     }
 }
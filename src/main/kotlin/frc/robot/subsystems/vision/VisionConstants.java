@@ -15,7 +15,10 @@ package frc.robot.subsystems.vision;
 
 import static edu.wpi.first.units.Units.*;
 
+import edu.wpi.first.apriltag.AprilTag;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.units.Units;
@@ -25,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import org.photonvision.simulation.SimCameraProperties;
 
 public class VisionConstants {
     public static String LOG_PREFIX = "Subsystems/Vision/";
@@ -42,6 +46,70 @@ public class VisionConstants {
         }
     }
 
+    // Tag poses of the layout indexed by tag id, replaced when the layout or its origin changes
+    private static volatile TagPoseTable tagPoseTable = new TagPoseTable(aprilTagLayout);
+
+    private static final class TagPoseTable {
+        private final AprilTagFieldLayout layout;
+        private final Pose3d origin;
+        private final Pose3d[] tagPoses;
+        private final Transform3d[] fieldToTags;
+        private final Transform3d[] tagToFields;
+
+        private TagPoseTable(AprilTagFieldLayout layout) {
+            this.layout = layout;
+            origin = layout.getOrigin();
+            int maxId = -1;
+            for (AprilTag tag : layout.getTags()) {
+                maxId = Math.max(maxId, tag.ID);
+            }
+            tagPoses = new Pose3d[maxId + 1];
+            fieldToTags = new Transform3d[maxId + 1];
+            tagToFields = new Transform3d[maxId + 1];
+            for (AprilTag tag : layout.getTags()) {
+                // Looked up through the layout, so the poses are relative to its origin
+                Pose3d tagPose = layout.getTagPose(tag.ID).orElseThrow();
+                Transform3d fieldToTag =
+                        new Transform3d(tagPose.getTranslation(), tagPose.getRotation());
+                tagPoses[tag.ID] = tagPose;
+                fieldToTags[tag.ID] = fieldToTag;
+                tagToFields[tag.ID] = fieldToTag.inverse();
+            }
+        }
+
+        private boolean isValidFor(AprilTagFieldLayout layout) {
+            return layout == this.layout && layout.getOrigin().equals(origin);
+        }
+    }
+
+    /**
+     * Rebuilds the tag pose table if {@link #aprilTagLayout} was replaced or its origin changed,
+     * such as when it is flipped for the alliance. Must be called from the main thread.
+     */
+    public static void updateTagPoseTable() {
+        if (!tagPoseTable.isValidFor(aprilTagLayout)) {
+            tagPoseTable = new TagPoseTable(aprilTagLayout);
+        }
+    }
+
+    /** Returns the pose of the tag, or null if the layout has no such tag. Does not allocate. */
+    public static Pose3d getTagPose(int id) {
+        TagPoseTable table = tagPoseTable;
+        return id >= 0 && id < table.tagPoses.length ? table.tagPoses[id] : null;
+    }
+
+    /** Returns the field to tag transform, or null if the layout has no such tag. */
+    public static Transform3d getFieldToTag(int id) {
+        TagPoseTable table = tagPoseTable;
+        return id >= 0 && id < table.fieldToTags.length ? table.fieldToTags[id] : null;
+    }
+
+    /** Returns the tag to field transform, or null if the layout has no such tag. */
+    public static Transform3d getTagToField(int id) {
+        TagPoseTable table = tagPoseTable;
+        return id >= 0 && id < table.tagToFields.length ? table.tagToFields[id] : null;
+    }
+
     // Camera names, must match names configured on coprocessor
     public static String turretOVName = "turret";
 
@@ -61,9 +129,45 @@ public class VisionConstants {
                 }
             };
 
+    /** Model of a camera for the PhotonVision simulator, from its calibration. */
+    public record SimCameraModel(
+            int resolutionWidth,
+            int resolutionHeight,
+            double diagonalFovDegrees,
+            double averageCalibrationErrorPx,
+            double calibrationErrorStdDevPx,
+            double fps,
+            double averageLatencyMs,
+            double latencyStdDevMs) {
+        public SimCameraProperties toProperties() {
+            SimCameraProperties properties = new SimCameraProperties();
+            properties.setCalibration(
+                    resolutionWidth, resolutionHeight, Rotation2d.fromDegrees(diagonalFovDegrees));
+            properties.setCalibError(averageCalibrationErrorPx, calibrationErrorStdDevPx);
+            properties.setFPS(fps);
+            properties.setAvgLatencyMs(averageLatencyMs);
+            properties.setLatencyStdDevMs(latencyStdDevMs);
+            return properties;
+        }
+    }
+
+    // Model of cameras without their own. Placeholder values from the PhotonVision examples, until
+    // the real cameras' calibration results are copied in
+    public static SimCameraModel defaultSimCameraModel =
+            new SimCameraModel(1280, 800, 90.0, 0.35, 0.10, 40.0, 30.0, 5.0);
+    // Simulated camera models by camera name, from each camera's calibration
+    public static Map<String, SimCameraModel> OVNameToSimCameraModel = new HashMap<>();
+
     // Basic filtering thresholds
     public static double maxAmbiguity = 0.3;
     public static double maxZError = 0.3;
+    public static double maxTilt = Math.toRadians(15.0); // Roll or pitch of the solved pose
+    public static double maxTagDistance = 6.0; // Meters
+    public static double fieldBorderMargin = 0.5; // Meters
+
+    // Gating against the estimated pose, bypassed after no observation was accepted for a while
+    public static double maxRotationDeltaFromEstimate = Math.toRadians(30.0);
+    public static double gateBypassSeconds = 2.0;
 
     // Standard deviation baselines, for 1 meter distance and 1 tag
     // (Adjusted automatically based on distance and # of tags)
@@ -46,4 +46,12 @@ public interface VisionIO {
     }
 
     default void updateInputs(VisionIOInputs inputs) {}
+
+    /**
+     * Returns whether {@link #updateInputs} may run on a worker thread, in parallel with the other
+     * cameras. Implementations sharing mutable state between cameras must return false.
+     */
+    default boolean supportsParallelUpdates() {
+        return true;
+    }
 }
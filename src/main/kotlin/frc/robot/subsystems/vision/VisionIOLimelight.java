@@ -18,19 +18,39 @@ import edu.wpi.first.networktables.DoubleArrayPublisher;
 import edu.wpi.first.networktables.DoubleArraySubscriber;
 import edu.wpi.first.networktables.DoubleSubscriber;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
 import edu.wpi.first.units.Units;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.wpilibj.RobotController;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.lib.NetworkTablesFlusher;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 /** IO implementation for real Limelight hardware. */
 public class VisionIOLimelight implements VisionIO {
+    // Orientation change below which it is not republished, and how often it is anyway
+    private static final double ORIENTATION_PUBLISH_THRESHOLD_DEGREES = 0.05;
+    private static final double ORIENTATION_REPUBLISH_PERIOD = 0.5;
+
+    // Layout of a decoded observation slot
+    private static final int TIMESTAMP = 0;
+    private static final int X = 1;
+    private static final int Y = 2;
+    private static final int Z = 3;
+    private static final int ROLL = 4;
+    private static final int PITCH = 5;
+    private static final int YAW = 6;
+    private static final int AMBIGUITY = 7;
+    private static final int TAG_COUNT = 8;
+    private static final int AVERAGE_TAG_DISTANCE = 9;
+    private static final int SLOT_SIZE = 10;
+
     private final Supplier<Rotation2d> rotationSupplier;
     private final DoubleArrayPublisher orientationPublisher;
+    private final double[] orientation = new double[6];
+    private double lastPublishedYawDegrees = Double.NaN;
+    private double lastPublishTimestamp = Double.NEGATIVE_INFINITY;
 
     private final DoubleSubscriber latencySubscriber;
     private final DoubleSubscriber txSubscriber;
@@ -38,6 +58,12 @@ public class VisionIOLimelight implements VisionIO {
     private final DoubleArraySubscriber megatag1Subscriber;
     private final DoubleArraySubscriber megatag2Subscriber;
     private Supplier<Angle> turretAngle = null;
+
+    // Observations decoded from the botpose arrays and the set of seen tag ids, reused every cycle
+    private double[] slots = new double[SLOT_SIZE * 8];
+    private PoseObservationType[] slotTypes = new PoseObservationType[8];
+    private int slotCount = 0;
+    private long[] tagIdBits = new long[1];
     /**
      * Creates a new VisionIOLimelight.
      *
@@ -75,98 +101,108 @@ public class VisionIOLimelight implements VisionIO {
                         Rotation2d.fromDegrees(txSubscriber.get()),
                         Rotation2d.fromDegrees(tySubscriber.get()));
 
-        // Update orientation for MegaTag 2
-        orientationPublisher.accept(
-                new double[] {rotationSupplier.get().getDegrees(), 0.0, 0.0, 0.0, 0.0, 0.0});
-        NetworkTableInstance.getDefault()
-                .flush(); // Increases network traffic but recommended by Limelight
+        // Update orientation for MegaTag 2, flushed together with the other cameras
+        double yawDegrees = rotationSupplier.get().getDegrees();
+        double now = Timer.getTimestamp();
+        if (!(Math.abs(yawDegrees - lastPublishedYawDegrees)
+                        < ORIENTATION_PUBLISH_THRESHOLD_DEGREES)
+                || now - lastPublishTimestamp > ORIENTATION_REPUBLISH_PERIOD) {
+            orientation[0] = yawDegrees;
+            orientationPublisher.accept(orientation);
+            lastPublishedYawDegrees = yawDegrees;
+            lastPublishTimestamp = now;
+            NetworkTablesFlusher.requestFlush(); // Recommended by Limelight
+        }
 
-        // Read new pose observations from NetworkTables
-        Set<Integer> tagIds = new HashSet<>();
-        List<PoseObservation> poseObservations = new LinkedList<>();
+        // Decode new pose observations from NetworkTables into the slots
+        slotCount = 0;
         for (var rawSample : megatag1Subscriber.readQueue()) {
-            if (rawSample.value.length == 0) continue;
-            for (int i = 11; i < rawSample.value.length; i += 7) {
-                tagIds.add((int) rawSample.value[i]);
-            }
-            Pose3d pose = parsePose(rawSample.value);
-            if (turretAngle != null) pose = rotateByTurret(pose);
-            poseObservations.add(
-                    new PoseObservation(
-                            // Timestamp, based on server timestamp of publish and latency
-                            rawSample.timestamp * 1.0e-6 - rawSample.value[6] * 1.0e-3,
-
-                            // 3D pose estimate
-                            pose,
-
-                            // Ambiguity, using only the first tag because ambiguity isn't
-                            // applicable for multitag
-                            rawSample.value.length >= 18 ? rawSample.value[17] : 0.0,
-
-                            // Tag count
-                            (int) rawSample.value[7],
-
-                            // Average tag distance
-                            rawSample.value[9],
-
-                            // Observation type
-                            PoseObservationType.MEGATAG_1));
+            decodeSample(rawSample, PoseObservationType.MEGATAG_1);
         }
         for (var rawSample : megatag2Subscriber.readQueue()) {
-            if (rawSample.value.length == 0) continue;
-            for (int i = 11; i < rawSample.value.length; i += 7) {
-                tagIds.add((int) rawSample.value[i]);
-            }
-            Pose3d pose = parsePose(rawSample.value);
-            if (turretAngle != null) pose = rotateByTurret(pose);
-            poseObservations.add(
-                    new PoseObservation(
-                            // Timestamp, based on server timestamp of publish and latency
-                            rawSample.timestamp * 1.0e-6 - rawSample.value[6] * 1.0e-3,
+            decodeSample(rawSample, PoseObservationType.MEGATAG_2);
+        }
 
-                            // 3D pose estimate
+        // Save pose observations to inputs object, reusing the array if the count is unchanged
+        if (inputs.poseObservations.length != slotCount) {
+            inputs.poseObservations = new PoseObservation[slotCount];
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            int base = slot * SLOT_SIZE;
+            double timestamp = slots[base + TIMESTAMP];
+            Pose3d pose =
+                    new Pose3d(
+                            slots[base + X],
+                            slots[base + Y],
+                            slots[base + Z],
+                            new Rotation3d(
+                                    slots[base + ROLL], slots[base + PITCH], slots[base + YAW]));
+            if (turretAngle != null) pose = rotateByTurret(pose, turretAngle.get());
+            inputs.poseObservations[slot] =
+                    new PoseObservation(
+                            timestamp,
                             pose,
-
-                            // Ambiguity, zeroed because the pose is already disambiguated
-                            0.0,
-
-                            // Tag count
-                            (int) rawSample.value[7],
-
-                            // Average tag distance
-                            rawSample.value[9],
-
-                            // Observation type
-                            PoseObservationType.MEGATAG_2));
+                            slots[base + AMBIGUITY],
+                            (int) slots[base + TAG_COUNT],
+                            slots[base + AVERAGE_TAG_DISTANCE],
+                            slotTypes[slot]);
         }
 
-        // Save pose observations to inputs object
-        inputs.poseObservations = new PoseObservation[poseObservations.size()];
-        for (int i = 0; i < poseObservations.size(); i++) {
-            inputs.poseObservations[i] = poseObservations.get(i);
+        // Save tag IDs to inputs objects, in ascending order, and clear the set
+        int tagCount = 0;
+        for (long word : tagIdBits) {
+            tagCount += Long.bitCount(word);
+        }
+        if (inputs.tagIds.length != tagCount) {
+            inputs.tagIds = new int[tagCount];
         }
-
-        // Save tag IDs to inputs objects
-        inputs.tagIds = new int[tagIds.size()];
         int i = 0;
-        for (int id : tagIds) {
-            inputs.tagIds[i++] = id;
+        for (int word = 0; word < tagIdBits.length; word++) {
+            long bits = tagIdBits[word];
+            while (bits != 0) {
+                inputs.tagIds[i++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+            tagIdBits[word] = 0;
         }
     }
 
-    /** Parses the 3D pose from a Limelight botpose array. */
-    private static Pose3d parsePose(double[] rawLLArray) {
-        return new Pose3d(
-                rawLLArray[0],
-                rawLLArray[1],
-                rawLLArray[2],
-                new Rotation3d(
-                        Math.toRadians(rawLLArray[3]),
-                        Math.toRadians(rawLLArray[4]),
-                        Math.toRadians(rawLLArray[5])));
+    /** Decodes a Limelight botpose array into the next slot, and adds its tags to the set. */
+    private void decodeSample(TimestampedDoubleArray rawSample, PoseObservationType type) {
+        double[] value = rawSample.value;
+        if (value.length == 0) return;
+        for (int i = 11; i < value.length; i += 7) {
+            int tagId = (int) value[i];
+            if (tagId < 0) continue;
+            if (tagId >= tagIdBits.length * Long.SIZE) {
+                tagIdBits = Arrays.copyOf(tagIdBits, tagId / Long.SIZE + 1);
+            }
+            tagIdBits[tagId / Long.SIZE] |= 1L << tagId;
+        }
+
+        if (slotCount == slotTypes.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            slotTypes = Arrays.copyOf(slotTypes, slotTypes.length * 2);
+        }
+        int base = slotCount * SLOT_SIZE;
+        // Timestamp, based on server timestamp of publish and latency
+        slots[base + TIMESTAMP] = rawSample.timestamp * 1.0e-6 - value[6] * 1.0e-3;
+        slots[base + X] = value[0];
+        slots[base + Y] = value[1];
+        slots[base + Z] = value[2];
+        slots[base + ROLL] = Math.toRadians(value[3]);
+        slots[base + PITCH] = Math.toRadians(value[4]);
+        slots[base + YAW] = Math.toRadians(value[5]);
+        // Ambiguity, using only the first tag because ambiguity isn't applicable for multitag.
+        // Zeroed for MegaTag 2 because the pose is already disambiguated.
+        slots[base + AMBIGUITY] =
+                type == PoseObservationType.MEGATAG_1 && value.length >= 18 ? value[17] : 0.0;
+        slots[base + TAG_COUNT] = value[7];
+        slots[base + AVERAGE_TAG_DISTANCE] = value[9];
+        slotTypes[slotCount++] = type;
     }
 
-    private Pose3d rotateByTurret(Pose3d fieldRelativePose) {
+    private static Pose3d rotateByTurret(Pose3d fieldRelativePose, Angle turretAngle) {
         return new Pose3d(
                 fieldRelativePose
                         .rotateAround(
@@ -177,11 +213,11 @@ public class VisionIOLimelight implements VisionIO {
                                 new Rotation3d(
                                         Units.Rotation.zero(),
                                         Units.Rotation.zero(),
-                                        turretAngle.get()))
+                                        turretAngle))
                         .getTranslation(),
                 new Rotation3d(
                         Units.Rotation.zero(),
                         Units.Rotation.zero(),
-                        Units.Degrees.of(180).minus(turretAngle.get())));
+                        Units.Degrees.of(180).minus(turretAngle)));
     }
 }
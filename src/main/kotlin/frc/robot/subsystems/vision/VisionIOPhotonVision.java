@@ -13,7 +13,7 @@
 
 package frc.robot.subsystems.vision;
 
-import static frc.robot.subsystems.vision.VisionConstants.aprilTagLayout;
+import static frc.robot.subsystems.vision.VisionConstants.getFieldToTag;
 
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -22,13 +22,14 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.DoubleFunction;
 import java.util.function.Supplier;
 import org.photonvision.PhotonCamera;
 
 /** IO implementation for real PhotonVision hardware. */
 public class VisionIOPhotonVision implements VisionIO {
     protected final PhotonCamera camera;
-    protected final Supplier<Transform3d> robotToCamera;
+    protected DoubleFunction<Transform3d> robotToCamera;
 
     /**
      * Creates a new VisionIOPhotonVision.
@@ -37,7 +38,17 @@ public class VisionIOPhotonVision implements VisionIO {
      */
     public VisionIOPhotonVision(String name, Supplier<Transform3d> robotToCamera) {
         camera = new PhotonCamera(name);
+        this.robotToCamera = (timestamp) -> robotToCamera.get();
+    }
+
+    /**
+     * Transforms each result with the robot to camera transform at the result's timestamp, for
+     * cameras on a moving mechanism such as a turret.
+     */
+    public VisionIOPhotonVision withTimestampedRobotToCamera(
+            DoubleFunction<Transform3d> robotToCamera) {
         this.robotToCamera = robotToCamera;
+        return this;
     }
 
     @Override
@@ -59,13 +70,15 @@ public class VisionIOPhotonVision implements VisionIO {
                         new TargetObservation(new Rotation2d(), new Rotation2d());
             }
 
-            // Add pose observation
+            // Add pose observation, with the camera where it was when the frame was captured
+            Transform3d cameraToRobot =
+                    robotToCamera.apply(result.getTimestampSeconds()).inverse();
             if (result.multitagResult.isPresent()) { // Multitag result
                 var multitagResult = result.multitagResult.get();
 
                 // Calculate robot pose
                 Transform3d fieldToCamera = multitagResult.estimatedPose.best;
-                Transform3d fieldToRobot = fieldToCamera.plus(robotToCamera.get().inverse());
+                Transform3d fieldToRobot = fieldToCamera.plus(cameraToRobot);
                 Pose3d robotPose =
                         new Pose3d(fieldToRobot.getTranslation(), fieldToRobot.getRotation());
 
@@ -92,14 +105,11 @@ public class VisionIOPhotonVision implements VisionIO {
                 var target = result.targets.get(0);
 
                 // Calculate robot pose
-                var tagPose = aprilTagLayout.getTagPose(target.fiducialId);
-                if (tagPose.isPresent()) {
-                    Transform3d fieldToTarget =
-                            new Transform3d(
-                                    tagPose.get().getTranslation(), tagPose.get().getRotation());
+                Transform3d fieldToTarget = getFieldToTag(target.fiducialId);
+                if (fieldToTarget != null) {
                     Transform3d cameraToTarget = target.bestCameraToTarget;
                     Transform3d fieldToCamera = fieldToTarget.plus(cameraToTarget.inverse());
-                    Transform3d fieldToRobot = fieldToCamera.plus(robotToCamera.get().inverse());
+                    Transform3d fieldToRobot = fieldToCamera.plus(cameraToRobot);
                     Pose3d robotPose =
                             new Pose3d(fieldToRobot.getTranslation(), fieldToRobot.getRotation());
 
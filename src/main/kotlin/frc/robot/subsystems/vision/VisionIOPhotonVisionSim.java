@@ -13,7 +13,9 @@
 
 package frc.robot.subsystems.vision;
 
+import static frc.robot.subsystems.vision.VisionConstants.OVNameToSimCameraModel;
 import static frc.robot.subsystems.vision.VisionConstants.aprilTagLayout;
+import static frc.robot.subsystems.vision.VisionConstants.defaultSimCameraModel;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Transform3d;
@@ -22,39 +24,71 @@ import org.photonvision.simulation.PhotonCameraSim;
 import org.photonvision.simulation.SimCameraProperties;
 import org.photonvision.simulation.VisionSystemSim;
 
-/** IO implementation for physics sim using PhotonVision simulator. */
+/**
+ * IO implementation for physics sim using PhotonVision simulator.
+ *
+ * <p>All cameras share one vision system, which the first camera created updates once per cycle
+ * for every camera.
+ */
 public class VisionIOPhotonVisionSim extends VisionIOPhotonVision {
     private static VisionSystemSim visionSim;
 
     private final Supplier<Pose2d> poseSupplier;
     private final PhotonCameraSim cameraSim;
+    private final boolean updatesVisionSim;
 
     /**
-     * Creates a new VisionIOPhotonVisionSim.
+     * Creates a new VisionIOPhotonVisionSim, with the camera model configured for its name in
+     * {@link VisionConstants#OVNameToSimCameraModel}.
      *
      * @param name The name of the camera.
      * @param poseSupplier Supplier for the robot pose to use in simulation.
      */
     public VisionIOPhotonVisionSim(
             String name, Supplier<Transform3d> robotToCamera, Supplier<Pose2d> poseSupplier) {
+        this(
+                name,
+                robotToCamera,
+                poseSupplier,
+                OVNameToSimCameraModel.getOrDefault(name, defaultSimCameraModel).toProperties());
+    }
+
+    /**
+     * Creates a new VisionIOPhotonVisionSim.
+     *
+     * @param name The name of the camera.
+     * @param poseSupplier Supplier for the robot pose to use in simulation.
+     * @param cameraProperties The simulated camera's resolution, FPS, latency and noise.
+     */
+    public VisionIOPhotonVisionSim(
+            String name,
+            Supplier<Transform3d> robotToCamera,
+            Supplier<Pose2d> poseSupplier,
+            SimCameraProperties cameraProperties) {
         super(name, robotToCamera);
         this.poseSupplier = poseSupplier;
 
         // Initialize vision sim
-        if (visionSim == null) {
+        updatesVisionSim = visionSim == null;
+        if (updatesVisionSim) {
             visionSim = new VisionSystemSim("main");
             visionSim.addAprilTags(aprilTagLayout);
         }
 
         // Add sim camera
-        var cameraProperties = new SimCameraProperties();
         cameraSim = new PhotonCameraSim(camera, cameraProperties);
         visionSim.addCamera(cameraSim, robotToCamera.get());
     }
 
     @Override
     public void updateInputs(VisionIOInputs inputs) {
-        visionSim.update(poseSupplier.get());
+        if (updatesVisionSim) visionSim.update(poseSupplier.get());
         super.updateInputs(inputs);
     }
+
+    @Override
+    public boolean supportsParallelUpdates() {
+        // The other cameras read the results of the first camera's update
+        return false;
+    }
 }
@@ -34,7 +34,8 @@ object Wrist : SubsystemBase() {
             momentOfInertia = 0.0025.kg2m,
             gearRatio = GEAR_RATIO,
             config = MOTOR_CONFIG,
-            simGains = SIM_CONFIG
+            simGains = SIM_CONFIG,
+            optimizeBusUtilization = true
         )
 
     @LoggedOutput
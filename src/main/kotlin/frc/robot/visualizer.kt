@@ -14,6 +14,7 @@ import frc.robot.lib.getPose3d
 import frc.robot.lib.getRotation3d
 import frc.robot.lib.getTranslation3d
 import frc.robot.robotstate.COMMAND_NAME_PREFIX
+import frc.robot.robotstate.robotState
 import frc.robot.subsystems.drive.Drive
 import frc.robot.subsystems.shooter.hood.Hood
 import frc.robot.subsystems.shooter.turret.Turret
@@ -142,6 +143,6 @@ fun logSubsystemPose() {
 val shootingDirection
     get() =
         Pose2d(
-            drive.pose.translation,
-            turretRotation.toRotation2d() + drive.pose.rotation
+            robotState.pose.translation,
+            turretRotation.toRotation2d() + robotState.pose.rotation
         )
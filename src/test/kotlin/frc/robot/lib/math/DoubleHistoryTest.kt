@@ -0,0 +1,62 @@
+package frc.robot.lib.math
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class DoubleHistoryTest {
+    @Test
+    fun emptyHistoryIsNaN() {
+        val history = DoubleHistory(4)
+
+        assertTrue(history.isEmpty)
+        assertTrue(history.sample(1.0).isNaN())
+    }
+
+    @Test
+    fun interpolatesBetweenSamples() {
+        val history = DoubleHistory(4)
+        history.addSample(1.0, 10.0)
+        history.addSample(2.0, 20.0)
+        history.addSample(4.0, 0.0)
+
+        assertEquals(15.0, history.sample(1.5), 1e-12)
+        assertEquals(20.0, history.sample(2.0), 1e-12)
+        assertEquals(10.0, history.sample(3.0), 1e-12)
+    }
+
+    @Test
+    fun clampsOutsideOfHistory() {
+        val history = DoubleHistory(4)
+        history.addSample(1.0, 10.0)
+        history.addSample(2.0, 20.0)
+
+        assertEquals(10.0, history.sample(0.0), 1e-12)
+        assertEquals(20.0, history.sample(5.0), 1e-12)
+    }
+
+    @Test
+    fun overwritesOldestWhenFull() {
+        val history = DoubleHistory(3)
+        for (i in 0 until 10) {
+            history.addSample(i.toDouble(), i * 10.0)
+        }
+
+        // Only 7, 8 and 9 are left, in order across the wraparound
+        assertEquals(70.0, history.sample(0.0), 1e-12)
+        assertEquals(75.0, history.sample(7.5), 1e-12)
+        assertEquals(85.0, history.sample(8.5), 1e-12)
+        assertEquals(90.0, history.sample(10.0), 1e-12)
+    }
+
+    @Test
+    fun ignoresOutOfOrderSamples() {
+        val history = DoubleHistory(4)
+        history.addSample(2.0, 20.0)
+        history.addSample(1.0, 10.0)
+        history.addSample(2.0, 30.0)
+
+        assertEquals(20.0, history.sample(1.0), 1e-12)
+        assertEquals(20.0, history.sample(3.0), 1e-12)
+    }
+}
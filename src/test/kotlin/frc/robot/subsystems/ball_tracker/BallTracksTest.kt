@@ -0,0 +1,79 @@
+package frc.robot.subsystems.ball_tracker
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class BallTracksTest {
+    private val tracks = BallTracks()
+
+    private fun addFrame(
+        timestamp: Double,
+        vararg balls: Pair<Double, Double>
+    ) {
+        tracks.addFrame(
+            timestamp,
+            balls.map { it.first }.toDoubleArray(),
+            balls.map { it.second }.toDoubleArray(),
+            balls.size
+        )
+    }
+
+    @Test
+    fun detectionsKeepTheirTrackIds() {
+        addFrame(0.0, 1.0 to 1.0, 3.0 to 1.0)
+        val ids = tracks.tracks.map { it.id }
+
+        // Listed in the opposite order, each detection matches its own track
+        addFrame(DT, 3.05 to 1.0, 1.05 to 1.0)
+
+        assertEquals(ids, tracks.tracks.map { it.id })
+        assertEquals(1.03, tracks.tracks[0].getX(DT), 1e-9)
+        assertEquals(3.03, tracks.tracks[1].getX(DT), 1e-9)
+    }
+
+    @Test
+    fun farDetectionStartsNewTrack() {
+        addFrame(0.0, 1.0 to 1.0)
+        addFrame(DT, 2.0 to 1.0)
+
+        assertEquals(2, tracks.tracks.size)
+        assertEquals(1L, tracks.tracks[1].id)
+    }
+
+    @Test
+    fun rollingBallIsFollowed() {
+        var timestamp = 0.0
+        for (i in 0 until 50) {
+            addFrame(timestamp, 1.0 + 2.0 * timestamp to 1.0)
+            timestamp += DT
+        }
+
+        val track = tracks.tracks.single()
+        assertTrue(track.isConfirmed)
+        assertEquals(2.0, track.velocityX, 0.05)
+        assertEquals(0.0, track.velocityY, 1e-9)
+    }
+
+    @Test
+    fun newTrackIsNotConfirmed() {
+        addFrame(0.0, 1.0 to 1.0)
+
+        assertFalse(tracks.tracks.single().isConfirmed)
+    }
+
+    @Test
+    fun undetectedTrackExpires() {
+        addFrame(0.0, 1.0 to 1.0)
+        addFrame(0.4, 5.0 to 5.0)
+
+        tracks.removeStale(0.6)
+
+        assertEquals(1L, tracks.tracks.single().id)
+    }
+
+    companion object {
+        private const val DT = 0.02
+    }
+}
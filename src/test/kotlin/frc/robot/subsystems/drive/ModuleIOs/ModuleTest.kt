@@ -0,0 +1,75 @@
+package frc.robot.subsystems.drive.ModuleIOs
+
+import edu.wpi.first.hal.HAL
+import frc.robot.subsystems.drive.TunerConstants
+import java.lang.management.ManagementFactory
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+class ModuleTest {
+    /** Publishes the same odometry samples every cycle without allocating. */
+    private class ConstantOdometryIO : ModuleIO {
+        private val timestamps = doubleArrayOf(0.0, 0.004, 0.008, 0.012, 0.016)
+        private val drivePositions = doubleArrayOf(1.0, 1.1, 1.2, 1.3, 1.4)
+        private val turnPositions = doubleArrayOf(0.5, 0.5, 0.5, 0.5, 0.5)
+
+        override fun updateInputs(inputs: ModuleIO.ModuleIOInputs) {
+            inputs.odometryTimestamps = timestamps
+            inputs.odometryDrivePositionsRad = drivePositions
+            inputs.odometryTurnPositionsRad = turnPositions
+        }
+    }
+
+    @Test
+    fun odometryPositionsMatchInputs() {
+        val module = Module(ConstantOdometryIO(), 0, TunerConstants.FrontLeft)
+        module.periodic()
+
+        assertEquals(5, module.odometrySampleCount)
+        val position = module.getOdometryPosition(2)
+        assertEquals(
+            1.2 * TunerConstants.FrontLeft.WheelRadius,
+            position.distanceMeters,
+            1e-9
+        )
+        assertEquals(0.5, position.angle.radians, 1e-9)
+    }
+
+    @Test
+    fun odometryCycleDoesNotAllocate() {
+        val module = Module(ConstantOdometryIO(), 0, TunerConstants.FrontLeft)
+        val threadBean =
+            ManagementFactory.getThreadMXBean()
+                as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+
+        // Warm up the pool and the JIT
+        repeat(WARMUP_CYCLES) { module.periodic() }
+
+        val allocatedBefore = threadBean.getThreadAllocatedBytes(threadId)
+        repeat(MEASURED_CYCLES) { module.periodic() }
+        val allocatedAfter = threadBean.getThreadAllocatedBytes(threadId)
+
+        val bytesPerCycle =
+            (allocatedAfter - allocatedBefore).toDouble() / MEASURED_CYCLES
+        assertTrue(
+            bytesPerCycle < MAX_BYTES_PER_CYCLE,
+            "Allocated $bytesPerCycle bytes per cycle"
+        )
+    }
+
+    companion object {
+        private const val WARMUP_CYCLES = 10_000
+        private const val MEASURED_CYCLES = 10_000
+        // Leaves room for the allocation counter's own bookkeeping
+        private const val MAX_BYTES_PER_CYCLE = 1.0
+
+        @JvmStatic
+        @BeforeAll
+        fun setup() {
+            HAL.initialize(500, 0)
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package frc.robot.subsystems.drive
+
+import edu.wpi.first.math.VecBuilder
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator
+import edu.wpi.first.math.geometry.Pose2d
+import edu.wpi.first.math.geometry.Rotation2d
+import edu.wpi.first.math.geometry.Translation2d
+import edu.wpi.first.math.kinematics.ChassisSpeeds
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics
+import edu.wpi.first.math.kinematics.SwerveModulePosition
+import java.lang.management.ManagementFactory
+import java.util.Random
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class SwervePoseEstimatorTest {
+    private val kinematics =
+        SwerveDriveKinematics(
+            Translation2d(0.3, 0.3),
+            Translation2d(0.3, -0.3),
+            Translation2d(-0.3, 0.3),
+            Translation2d(-0.3, -0.3)
+        )
+
+    @Test
+    fun matchesWpilibEstimator() {
+        val positions = Array(4) { SwerveModulePosition() }
+        val initialPose = Pose2d(1.0, 2.0, Rotation2d.fromDegrees(30.0))
+        val stateStdDevs = VecBuilder.fill(0.05, 0.05, 0.02)
+        val visionStdDevs = VecBuilder.fill(0.5, 0.5, 0.3)
+        val expected =
+            SwerveDrivePoseEstimator(
+                kinematics,
+                Rotation2d.kZero,
+                positions,
+                initialPose,
+                stateStdDevs,
+                visionStdDevs
+            )
+        val actual =
+            SwervePoseEstimator(
+                kinematics,
+                Rotation2d.kZero,
+                positions,
+                initialPose,
+                stateStdDevs,
+                visionStdDevs
+            )
+
+        val random = Random(6328)
+        var gyroAngle = 0.0
+        for (step in 1..STEPS) {
+            val timestamp = step * PERIOD
+
+            // Drive a wobbling arc, and integrate the module positions
+            val speeds =
+                ChassisSpeeds(
+                    2.0 * Math.cos(timestamp),
+                    1.0 * Math.sin(0.7 * timestamp),
+                    1.5 * Math.sin(0.3 * timestamp)
+                )
+            val states = kinematics.toSwerveModuleStates(speeds)
+            for (i in positions.indices) {
+                positions[i] =
+                    SwerveModulePosition(
+                        positions[i].distanceMeters +
+                            states[i].speedMetersPerSecond * PERIOD,
+                        states[i].angle
+                    )
+            }
+            gyroAngle += speeds.omegaRadiansPerSecond * PERIOD
+            val gyroRotation = Rotation2d.fromRadians(gyroAngle)
+
+            expected.updateWithTime(timestamp, gyroRotation, positions)
+            actual.updateWithTime(timestamp, gyroRotation, positions)
+
+            // Several cameras per cycle, with latency and out of order
+            if (step % VISION_PERIOD_STEPS == 0) {
+                repeat(CAMERAS) {
+                    val measurementTimestamp =
+                        timestamp - 0.02 - random.nextDouble() * 0.1
+                    val truth = expected.sampleAt(measurementTimestamp).get()
+                    val measurement =
+                        Pose2d(
+                            truth.x + random.nextGaussian() * 0.2,
+                            truth.y + random.nextGaussian() * 0.2,
+                            truth.rotation.plus(
+                                Rotation2d.fromRadians(
+                                    random.nextGaussian() * 0.05
+                                )
+                            )
+                        )
+                    val stdDevs =
+                        VecBuilder.fill(
+                            0.3 + random.nextDouble(),
+                            0.3 + random.nextDouble(),
+                            0.2 + random.nextDouble()
+                        )
+                    expected.addVisionMeasurement(
+                        measurement,
+                        measurementTimestamp,
+                        stdDevs
+                    )
+                    actual.addVisionMeasurement(
+                        measurement,
+                        measurementTimestamp,
+                        stdDevs
+                    )
+                }
+            }
+
+            assertPoseEquals(
+                expected.estimatedPosition,
+                actual.estimatedPosition
+            )
+            val sampleTimestamp = timestamp - random.nextDouble() * 0.5
+            assertPoseEquals(
+                expected.sampleAt(sampleTimestamp).get(),
+                actual.sampleAt(sampleTimestamp).get()
+            )
+        }
+    }
+
+    @Test
+    fun queuedMeasurementsApplyInTimestampOrder() {
+        val positions = Array(4) { SwerveModulePosition() }
+        val sorted =
+            SwervePoseEstimator(
+                kinematics,
+                Rotation2d.kZero,
+                positions,
+                Pose2d()
+            )
+        val queued =
+            SwervePoseEstimator(
+                kinematics,
+                Rotation2d.kZero,
+                positions,
+                Pose2d()
+            )
+        for (step in 1..50) {
+            for (i in positions.indices) {
+                positions[i] =
+                    SwerveModulePosition(step * 0.01, Rotation2d.kZero)
+            }
+            sorted.updateWithTime(step * PERIOD, Rotation2d.kZero, positions)
+            queued.updateWithTime(step * PERIOD, Rotation2d.kZero, positions)
+        }
+
+        val stdDevs = VecBuilder.fill(0.5, 0.5, 0.5)
+        val older = Pose2d(0.6, 0.1, Rotation2d.kZero)
+        val newer = Pose2d(0.8, -0.1, Rotation2d.kZero)
+        sorted.addVisionMeasurement(older, 0.1, stdDevs)
+        sorted.addVisionMeasurement(newer, 0.15, stdDevs)
+        queued.queueVisionMeasurement(newer, 0.15, stdDevs)
+        queued.queueVisionMeasurement(older, 0.1, stdDevs)
+        queued.applyQueuedVisionMeasurements()
+
+        assertPoseEquals(sorted.estimatedPosition, queued.estimatedPosition)
+    }
+
+    /**
+     * Runs the same cycle through both estimators: a loop's odometry samples,
+     * then several cameras' measurements with latency, newest first. Timing is
+     * left to SwervePoseEstimatorBenchmark, which does not assert on it.
+     */
+    @Test
+    fun cycleAllocatesLessThanWpilib() {
+        val stdDevs = VecBuilder.fill(0.5, 0.5, 0.3)
+        val measurements =
+            Array(CAMERAS) { Pose2d(1.0 + 0.1 * it, 2.0, Rotation2d.kZero) }
+        val wpilibPositions = Array(4) { SwerveModulePosition() }
+        val wpilib =
+            SwerveDrivePoseEstimator(
+                kinematics,
+                Rotation2d.kZero,
+                wpilibPositions,
+                Pose2d()
+            )
+        val positions = Array(4) { SwerveModulePosition() }
+        val estimator =
+            SwervePoseEstimator(
+                kinematics,
+                Rotation2d.kZero,
+                positions,
+                Pose2d()
+            )
+        val estimate = DoubleArray(3)
+
+        val wpilibBytes = measureAllocatedBytesPerCycle { cycle ->
+            var timestamp = 0.0
+            for (sample in 1..SAMPLES_PER_CYCLE) {
+                timestamp = (cycle * SAMPLES_PER_CYCLE + sample) * PERIOD
+                wpilibPositions.forEach { it.distanceMeters += 0.01 }
+                wpilib.updateWithTime(
+                    timestamp,
+                    Rotation2d.fromRadians(0.5 * timestamp),
+                    wpilibPositions
+                )
+            }
+            for (camera in 0 until CAMERAS) {
+                wpilib.addVisionMeasurement(
+                    measurements[camera],
+                    timestamp - 0.02 - 0.01 * camera,
+                    stdDevs
+                )
+            }
+        }
+        val bytes = measureAllocatedBytesPerCycle { cycle ->
+            var timestamp = 0.0
+            for (sample in 1..SAMPLES_PER_CYCLE) {
+                timestamp = (cycle * SAMPLES_PER_CYCLE + sample) * PERIOD
+                positions.forEach { it.distanceMeters += 0.01 }
+                estimator.addOdometrySample(
+                    timestamp,
+                    0.5 * timestamp,
+                    positions
+                )
+                estimator.getEstimatedPosition(estimate)
+            }
+            for (camera in 0 until CAMERAS) {
+                estimator.queueVisionMeasurement(
+                    measurements[camera],
+                    timestamp - 0.02 - 0.01 * camera,
+                    stdDevs
+                )
+            }
+            estimator.applyQueuedVisionMeasurements()
+        }
+
+        assertTrue(
+            bytes * 10 < wpilibBytes,
+            "Allocated $bytes bytes per cycle, WPILib $wpilibBytes"
+        )
+    }
+
+    /**
+     * Returns the allocation of a cycle on average, after warming up the JIT so
+     * escape analysis applies. Inlined so the cycle index is not boxed.
+     */
+    private inline fun measureAllocatedBytesPerCycle(
+        cycle: (Int) -> Unit
+    ): Double {
+        val threadBean =
+            ManagementFactory.getThreadMXBean()
+                as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+        var index = 0
+
+        repeat(WARMUP_CYCLES) { cycle(index++) }
+
+        val allocatedBefore = threadBean.getThreadAllocatedBytes(threadId)
+        repeat(MEASURED_CYCLES) { cycle(index++) }
+        val allocatedAfter = threadBean.getThreadAllocatedBytes(threadId)
+
+        return (allocatedAfter - allocatedBefore).toDouble() / MEASURED_CYCLES
+    }
+
+    private fun assertPoseEquals(expected: Pose2d, actual: Pose2d) {
+        assertEquals(expected.x, actual.x, TOLERANCE)
+        assertEquals(expected.y, actual.y, TOLERANCE)
+        assertEquals(
+            0.0,
+            expected.rotation.minus(actual.rotation).radians,
+            TOLERANCE
+        )
+    }
+
+    companion object {
+        private const val PERIOD = 1.0 / 250.0
+        private const val STEPS = 2_500
+        private const val VISION_PERIOD_STEPS = 5
+        private const val CAMERAS = 3
+        private const val TOLERANCE = 1e-6
+        private const val SAMPLES_PER_CYCLE = 5
+        private const val WARMUP_CYCLES = 10_000
+        private const val MEASURED_CYCLES = 10_000
+    }
+}
@@ -0,0 +1,59 @@
+package frc.robot.subsystems.drive
+
+import edu.wpi.first.math.geometry.Rotation2d
+import edu.wpi.first.math.geometry.Translation2d
+import edu.wpi.first.math.kinematics.SwerveModulePosition
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class WheelSlipDetectorTest {
+    private val detector =
+        WheelSlipDetector(
+            arrayOf(
+                Translation2d(0.3, 0.3),
+                Translation2d(0.3, -0.3),
+                Translation2d(-0.3, 0.3),
+                Translation2d(-0.3, -0.3)
+            )
+        )
+
+    @Test
+    fun consistentWheelsAreKept() {
+        val deltas = Array(4) { SwerveModulePosition(0.01, Rotation2d.kZero) }
+
+        assertEquals(0, detector.update(deltas, 0.0, DT))
+        deltas.forEach { assertEquals(0.01, it.distanceMeters, 1e-12) }
+    }
+
+    @Test
+    fun spinningWheelIsReplaced() {
+        val deltas = Array(4) { SwerveModulePosition(0.01, Rotation2d.kZero) }
+        deltas[2].distanceMeters = 0.05
+
+        assertEquals(1, detector.update(deltas, 0.0, DT))
+        assertTrue(detector.isSlipping(2))
+        assertFalse(detector.isSlipping(0))
+        assertEquals(0.01, deltas[2].distanceMeters, 1e-12)
+    }
+
+    @Test
+    fun rotationIsNotSlip() {
+        // Spinning in place, each wheel moves tangentially
+        val dtheta = 0.01
+        val distance = dtheta * Math.hypot(0.3, 0.3)
+        val deltas =
+            doubleArrayOf(135.0, 45.0, -135.0, -45.0)
+                .map {
+                    SwerveModulePosition(distance, Rotation2d.fromDegrees(it))
+                }
+                .toTypedArray()
+
+        assertEquals(0, detector.update(deltas, dtheta, DT))
+    }
+
+    companion object {
+        private const val DT = 0.004
+    }
+}
@@ -0,0 +1,123 @@
+package frc.robot.subsystems.vision
+
+import edu.wpi.first.hal.HAL
+import edu.wpi.first.math.Matrix
+import edu.wpi.first.math.geometry.Pose2d
+import edu.wpi.first.math.geometry.Pose3d
+import edu.wpi.first.math.geometry.Rotation3d
+import edu.wpi.first.math.numbers.N1
+import edu.wpi.first.math.numbers.N3
+import frc.robot.subsystems.vision.VisionIO.PoseObservation
+import frc.robot.subsystems.vision.VisionIO.PoseObservationType
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+class VisionTest {
+    /** Returns the observations set by the test, once. */
+    private class FakeIO : VisionIO {
+        var observations = arrayOf<PoseObservation>()
+
+        override fun updateInputs(inputs: VisionIO.VisionIOInputs) {
+            inputs.connected = true
+            inputs.poseObservations = observations
+            observations = arrayOf()
+        }
+    }
+
+    /** Estimates the robot standing still at (2, 2), facing 0. */
+    private class FakeConsumer : Vision.VisionConsumer {
+        var acceptedCount = 0
+
+        override fun accept(
+            visionRobotPoseMeters: Pose2d,
+            timestampSeconds: Double,
+            visionMeasurementStdDevs: Matrix<N3, N1>
+        ) {
+            acceptedCount++
+        }
+
+        override fun samplePoseAt(
+            timestampSeconds: Double,
+            out: DoubleArray
+        ): Boolean {
+            out[0] = 2.0
+            out[1] = 2.0
+            out[2] = 0.0
+            return true
+        }
+    }
+
+    private val io = FakeIO()
+    private val consumer = FakeConsumer()
+    private val vision = Vision(consumer, io)
+
+    private fun accepts(
+        timestamp: Double,
+        x: Double,
+        yawRad: Double = 0.0,
+        type: PoseObservationType = PoseObservationType.PHOTONVISION
+    ): Boolean {
+        io.observations =
+            arrayOf(
+                PoseObservation(
+                    timestamp,
+                    Pose3d(x, 2.0, 0.0, Rotation3d(0.0, 0.0, yawRad)),
+                    0.0,
+                    2,
+                    2.0,
+                    type
+                )
+            )
+        val acceptedBefore = consumer.acceptedCount
+        vision.periodic()
+        return consumer.acceptedCount > acceptedBefore
+    }
+
+    @Test
+    fun farObservationIsRejectedAfterAnAcceptedOne() {
+        assertTrue(accepts(10.0, 2.1))
+        assertFalse(accepts(10.1, 5.0))
+    }
+
+    @Test
+    fun gateIsBypassedUntilAnObservationIsAccepted() {
+        assertTrue(accepts(10.0, 5.0))
+    }
+
+    @Test
+    fun gateIsBypassedAfterNothingWasAcceptedForLong() {
+        assertTrue(accepts(10.0, 2.1))
+        assertTrue(
+            accepts(10.0 + VisionConstants.gateBypassSeconds + 0.1, 5.0)
+        )
+    }
+
+    @Test
+    fun rotatedFullSolveIsRejected() {
+        assertTrue(accepts(10.0, 2.1))
+        assertFalse(accepts(10.1, 2.1, Math.toRadians(60.0)))
+    }
+
+    @Test
+    fun megatag2RotationIsNotGated() {
+        assertTrue(accepts(10.0, 2.1))
+        assertTrue(
+            accepts(
+                10.1,
+                2.1,
+                Math.toRadians(60.0),
+                PoseObservationType.MEGATAG_2
+            )
+        )
+    }
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun setup() {
+            HAL.initialize(500, 0)
+        }
+    }
+}